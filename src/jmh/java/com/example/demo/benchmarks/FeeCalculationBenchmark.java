@@ -0,0 +1,96 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.entities.FeeCalculator;
+import com.example.demo.entities.NonResidentVehicle;
+import com.example.demo.entities.ResidentVehicle;
+import com.example.demo.entities.Vehicle;
+import com.example.demo.projections.ResidentPayment;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class FeeCalculationBenchmark {
+    private static final BigDecimal NON_RESIDENT_TAX = BigDecimal.valueOf(0.5);
+    private static final BigDecimal RESIDENT_TAX = BigDecimal.valueOf(0.05);
+
+    private final long[] durations = new long[1024];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = random.nextInt(12 * 60 * 60 * 1000);
+        }
+    }
+
+    private long nextDuration() {
+        return durations[index++ & (durations.length - 1)];
+    }
+
+    private static BigDecimal legacyMinutes(long milliseconds) {
+        return BigDecimal.valueOf(milliseconds)
+                .divide(BigDecimal.valueOf(1000 * 60), 2, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public BigDecimal legacyMillisecondsToMinutes() {
+        return legacyMinutes(nextDuration());
+    }
+
+    @Benchmark
+    public BigDecimal legacyNonResidentFee() {
+        return legacyMinutes(nextDuration()).multiply(NON_RESIDENT_TAX);
+    }
+
+    @Benchmark
+    public BigDecimal legacyResidentFee() {
+        return legacyMinutes(nextDuration()).multiply(RESIDENT_TAX);
+    }
+
+    @Benchmark
+    public long fixedPointMinutes() {
+        return FeeCalculator.centiMinutes(nextDuration());
+    }
+
+    @Benchmark
+    public long fixedPointNonResidentFee() {
+        return FeeCalculator.nonResidentFee(nextDuration());
+    }
+
+    @Benchmark
+    public long fixedPointResidentFee() {
+        return FeeCalculator.residentFee(nextDuration());
+    }
+
+    @Benchmark
+    public BigDecimal millisecondsToMinutes() {
+        return Vehicle.millisecondsToMinutes(nextDuration());
+    }
+
+    @Benchmark
+    public BigDecimal nonResidentCheckOutFee() {
+        return NonResidentVehicle.calculateParkingFee(nextDuration());
+    }
+
+    @Benchmark
+    public BigDecimal residentFee() {
+        return ResidentVehicle.calculateParkingFee(nextDuration());
+    }
+
+    @Benchmark
+    public void residentPaymentRow(Blackhole blackhole) {
+        blackhole.consume(new ResidentPayment("ABC1234", nextDuration()));
+    }
+
+}
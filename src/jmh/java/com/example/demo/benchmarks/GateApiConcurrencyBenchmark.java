@@ -0,0 +1,97 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.DemoApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Check-in/check-out round trips against the running application on H2, comparing the
+// platform thread pool with virtual threads as the number of concurrent clients grows.
+// Run with: mvn -Pbenchmarks compile exec:exec -Djmh.benchmarks=GateApiConcurrencyBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GateApiConcurrencyBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"16", "64", "256", "1024"})
+    public int concurrency;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private List<String> licensePlates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Command line arguments, since default properties would lose to application.properties
+        context = new SpringApplicationBuilder(DemoApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.hikari.data-source-properties.reWriteBatchedInserts=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.hibernate.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--vehicle.server.virtual-threads.enabled=" + "virtual".equals(threads));
+        baseUrl = "http://localhost:"
+                + ((ServletWebServerApplicationContext) context).getWebServer().getPort() + "/vehicle";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        licensePlates = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            String licensePlate = String.format("BN%06d", i);
+            send(post("/register", "{\"licensePlate\":\"" + licensePlate + "\",\"vehicleEnum\":\"NON_RESIDENT\"}")).join();
+            licensePlates.add(licensePlate);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void checkInCheckOut() {
+        List<CompletableFuture<?>> requests = new ArrayList<>(licensePlates.size());
+        for (String licensePlate : licensePlates) {
+            requests.add(send(post("/check-in/" + licensePlate, ""))
+                    .thenCompose(response -> send(post("/check-out/checkoutNonResident/" + licensePlate, ""))));
+        }
+        CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            if (response.statusCode() >= 400) {
+                throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+            }
+            return response;
+        });
+    }
+
+}
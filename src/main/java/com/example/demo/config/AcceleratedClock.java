@@ -0,0 +1,44 @@
+package com.example.demo.config;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+// Clock that runs 'speed' times faster than its source from the moment it is created,
+// used to compress a day of gate traffic into minutes for load tests and simulations.
+public class AcceleratedClock extends Clock {
+    private final Clock source;
+    private final double speed;
+    private final long originMillis;
+
+    public AcceleratedClock(Clock source, double speed) {
+        this(source, speed, source.millis());
+    }
+
+    private AcceleratedClock(Clock source, double speed, long originMillis) {
+        this.source = source;
+        this.speed = speed;
+        this.originMillis = originMillis;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return source.getZone();
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new AcceleratedClock(source.withZone(zone), speed, originMillis);
+    }
+
+    @Override
+    public long millis() {
+        return originMillis + (long) ((source.millis() - originMillis) * speed);
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis());
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+public class ClockConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public Clock clock(@Value("${vehicle.clock.speed:1}") double speed) {
+        Clock systemClock = Clock.systemUTC();
+        return speed == 1 ? systemClock : new AcceleratedClock(systemClock, speed);
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.example.demo.config;
+
+import com.example.demo.events.GateJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(name = "vehicle.journal.enabled", havingValue = "true")
+public class JournalConfig {
+
+    @Bean(destroyMethod = "close")
+    public GateJournal gateJournal(@Value("${vehicle.journal.directory:gate-journal}") Path directory,
+                                   @Value("${vehicle.journal.segment-size-bytes:67108864}") int segmentSize,
+                                   @Value("${vehicle.journal.retained-segments:16}") int retainedSegments) throws IOException {
+        GateJournal gateJournal = new GateJournal(directory, segmentSize, retainedSegments);
+        gateJournal.open();
+        return gateJournal;
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+// Replaces the single connection pool with a primary pool for gate writes and a replica pool for
+// read-only transactions such as the billing and usage reports. The pools are not beans of their own,
+// so only the routing data source is wrapped for statement counting.
+@Configuration
+@ConditionalOnProperty(name = "vehicle.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 @Value("${vehicle.datasource.replica.url}") String replicaUrl,
+                                 @Value("${vehicle.datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+                                 @Value("${vehicle.datasource.replica.password:${spring.datasource.password:}}") String replicaPassword,
+                                 @Value("${vehicle.datasource.replica.maximum-pool-size:10}") int replicaPoolSize,
+                                 @Value("${vehicle.datasource.replica.retry-interval-ms:30000}") long retryIntervalMs) {
+        primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setJdbcUrl(replicaUrl);
+        replica.setUsername(replicaUsername);
+        replica.setPassword(replicaPassword);
+        replica.setMaximumPoolSize(replicaPoolSize);
+        replica.setConnectionTimeout(primary.getConnectionTimeout());
+        replica.setReadOnly(true);
+        // Start without the replica; a failed connection then falls back to the primary instead of failing startup
+        replica.setInitializationFailTimeout(-1);
+
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, retryIntervalMs));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (replica != null) {
+            replica.close();
+        }
+        if (primary != null) {
+            primary.close();
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.example.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Hands out replica connections inside read-only transactions and primary connections everywhere else.
+// It must sit behind a LazyConnectionDataSourceProxy so the connection is picked once the transaction's
+// read-only flag is known. When the replica fails to give a connection, reads fall back to the primary
+// and the replica is not tried again until the retry interval has passed.
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long retryIntervalMs;
+    private volatile long replicaRetryAt = System.nanoTime();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, long retryIntervalMs) {
+        this.primary = primary;
+        this.replica = replica;
+        this.retryIntervalMs = retryIntervalMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource connectionSource) throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && System.nanoTime() - replicaRetryAt >= 0) {
+            try {
+                return connectionSource.get(replica);
+            } catch (SQLException e) {
+                replicaRetryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryIntervalMs);
+                log.warn("Replica unavailable, sending reads to the primary for the next {} ms", retryIntervalMs, e);
+            }
+        }
+        return connectionSource.get(primary);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Scheduled jobs run on spring.task.scheduling.pool.size threads, so a reconciliation waiting for the
+// database does not hold up the occupancy push or the other jobs
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,19 +1,38 @@
 package com.example.demo.controllers;
 
+import com.example.demo.dtos.GateBatchDTO;
+import com.example.demo.dtos.GateEventResultDTO;
+import com.example.demo.dtos.MonthRolloverDTO;
+import com.example.demo.dtos.OccupancyDTO;
 import com.example.demo.dtos.VehicleDTO;
+import com.example.demo.dtos.VehicleImportDTO;
 import com.example.demo.entities.Vehicle;
 import com.example.demo.enums.VehicleEnum;
 import com.example.demo.exceptions.InvalidVehicleEnum;
+import com.example.demo.projections.OfficialVehicleUsage;
+import com.example.demo.projections.ResidentPayment;
+import com.example.demo.projections.VehicleSearchResult;
+import com.example.demo.services.GateBatchService;
+import com.example.demo.services.OccupancyService;
+import com.example.demo.services.VehicleImportService;
 import com.example.demo.services.VehicleService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.util.HashMap;
+import java.time.Instant;
+import java.time.YearMonth;
 import java.util.List;
 
 @Controller
@@ -23,6 +42,18 @@ public class VehicleController {
     @Autowired
     private VehicleService vehicleService;
 
+    @Autowired
+    private GateBatchService gateBatchService;
+
+    @Autowired
+    private OccupancyService occupancyService;
+
+    @Autowired
+    private VehicleImportService vehicleImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping("/register")
     public ResponseEntity<Vehicle> register(@Valid @RequestBody VehicleDTO vehicleDTO){
         try{
@@ -33,40 +64,107 @@ public class VehicleController {
         }
     }
 
+    @PostMapping(value = "/register/import", consumes = "text/csv")
+    public ResponseEntity<VehicleImportDTO> importCsv(InputStream body){
+        return ResponseEntity.ok(vehicleImportService.importCsv(body));
+    }
+
+    @PostMapping(value = "/register/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<VehicleImportDTO> importNdjson(InputStream body){
+        return ResponseEntity.ok(vehicleImportService.importNdjson(body));
+    }
+
     @PostMapping("/check-in/{licensePlate}")
-    public ResponseEntity<Void> checkIn(@PathVariable String licensePlate){
-        vehicleService.checkIn(licensePlate);
+    public ResponseEntity<Void> checkIn(@PathVariable String licensePlate, @RequestParam(required = false) String facility){
+        vehicleService.checkIn(facility, licensePlate);
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/check-in/batch")
+    public ResponseEntity<List<GateEventResultDTO>> checkInBatch(@Valid @RequestBody GateBatchDTO gateBatchDTO,
+                                                                 @RequestParam(required = false) String facility){
+        return ResponseEntity.ok(gateBatchService.checkIn(facility, gateBatchDTO.getLicensePlates()));
+    }
+
+    @PostMapping("/check-out/batch")
+    public ResponseEntity<List<GateEventResultDTO>> checkOutBatch(@Valid @RequestBody GateBatchDTO gateBatchDTO,
+                                                                  @RequestParam(required = false) String facility){
+        return ResponseEntity.ok(gateBatchService.checkOut(facility, gateBatchDTO.getLicensePlates()));
+    }
+
     @PostMapping("/check-out/checkoutOfficial/{licensePlate}")
-    public ResponseEntity<Void> checkOut(@PathVariable String licensePlate){
-        vehicleService.checkOutOfficial(licensePlate);
+    public ResponseEntity<Void> checkOut(@PathVariable String licensePlate, @RequestParam(required = false) String facility){
+        vehicleService.checkOutOfficial(facility, licensePlate);
         return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/check-out/checkoutResident/{licensePlate}")
-    public ResponseEntity<Void> checkOutResident(@PathVariable String licensePlate) {
-        vehicleService.checkOutResident(licensePlate);
+    public ResponseEntity<Void> checkOutResident(@PathVariable String licensePlate, @RequestParam(required = false) String facility) {
+        vehicleService.checkOutResident(facility, licensePlate);
         return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/check-out/checkoutNonResident/{licensePlate}")
-    public ResponseEntity<BigDecimal> checkOutNonResident(@PathVariable String licensePlate) {
-        BigDecimal parkingFee = vehicleService.checkOutNonResident(licensePlate);
+    public ResponseEntity<BigDecimal> checkOutNonResident(@PathVariable String licensePlate, @RequestParam(required = false) String facility) {
+        BigDecimal parkingFee = vehicleService.checkOutNonResident(facility, licensePlate);
         return ResponseEntity.ok(parkingFee);
     }
 
     @PostMapping("/startOfMonth")
-    public ResponseEntity<Void> startOfMonth() {
-        vehicleService.startOfMonth();
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<MonthRolloverDTO> startOfMonth(@RequestParam(required = false) String facility) {
+        MonthRolloverDTO result = vehicleService.startOfMonth(facility);
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<VehicleSearchResult>> search(@RequestParam String prefix,
+            @RequestParam(required = false) String after, @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String facility) {
+        return ResponseEntity.ok(vehicleService.search(facility, prefix, after, size));
+    }
+
+    @GetMapping("/occupancy")
+    public ResponseEntity<OccupancyDTO> occupancy(@RequestParam(required = false) String facility) {
+        return ResponseEntity.ok(occupancyService.occupancy(facility));
+    }
+
+    @GetMapping(value = "/occupancy/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamOccupancy(@RequestParam(required = false) String facility) {
+        return ResponseEntity.ok(occupancyService.subscribe(facility));
+    }
+
+    @GetMapping("/officialUsage")
+    public ResponseEntity<List<OfficialVehicleUsage>> officialUsage
+            (@RequestParam Instant from, @RequestParam Instant to, @RequestParam(required = false) String facility) {
+        List<OfficialVehicleUsage> result = vehicleService.officialVehicleUsage(facility, from, to);
+        return ResponseEntity.ok(result);
     }
 
     @GetMapping("/residentPayment")
-    public ResponseEntity<List<HashMap<String, Object>>> residentPayment() {
-        List<HashMap<String, Object>> result = vehicleService.residentPayment();
+    public ResponseEntity<List<ResidentPayment>> residentPayment
+            (@RequestParam(required = false) YearMonth month, @RequestParam(required = false) String after,
+             @RequestParam(required = false) Integer size, @RequestParam(required = false) String facility) {
+        List<ResidentPayment> result = size == null
+                ? vehicleService.residentPayment(facility, month)
+                : vehicleService.residentPayment(facility, month, after, size);
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping(value = "/residentPayment", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamResidentPayment
+            (@RequestParam(required = false) YearMonth month, @RequestParam(required = false) String facility) {
+        StreamingResponseBody body = outputStream -> vehicleService.streamResidentPayment(facility, month,
+                residentPayment -> {
+                    try {
+                        outputStream.write(objectMapper.writeValueAsBytes(residentPayment));
+                        outputStream.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
 }
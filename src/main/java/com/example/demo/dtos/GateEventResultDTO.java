@@ -0,0 +1,25 @@
+package com.example.demo.dtos;
+
+import com.example.demo.enums.GateEventStatus;
+import com.example.demo.enums.VehicleEnum;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GateEventResultDTO {
+    private String licensePlate;
+    private GateEventStatus status;
+    private VehicleEnum vehicleEnum;
+    private BigDecimal parkingFee;
+}
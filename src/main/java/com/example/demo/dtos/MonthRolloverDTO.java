@@ -0,0 +1,15 @@
+package com.example.demo.dtos;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class MonthRolloverDTO {
+    private String facility;
+    private List<String> stayPartitionsCreated;
+    private List<String> stayPartitionsClosed;
+    private int residentInvoicesClosed;
+}
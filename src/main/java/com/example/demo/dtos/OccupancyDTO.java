@@ -0,0 +1,17 @@
+package com.example.demo.dtos;
+
+import com.example.demo.enums.VehicleEnum;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@Builder
+@EqualsAndHashCode
+public class OccupancyDTO {
+    private String facility;
+    private Map<VehicleEnum, Long> parked;
+    private long total;
+}
@@ -19,4 +19,6 @@ public class VehicleDTO {
     private String licensePlate;
     @NotBlank
     private String vehicleEnum;
+    @Size(max = 32)
+    private String facility;
 }
@@ -0,0 +1,34 @@
+package com.example.demo.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class VehicleImportDTO {
+    private long imported;
+    private long rejected;
+    private boolean errorsTruncated;
+    private final List<VehicleImportErrorDTO> errors = new ArrayList<>();
+    @JsonIgnore
+    private final int maxErrors;
+
+    public VehicleImportDTO(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void imported(int count) {
+        imported += count;
+    }
+
+    public void reject(long line, String licensePlate, String message) {
+        rejected++;
+        if (errors.size() < maxErrors) {
+            errors.add(new VehicleImportErrorDTO(line, licensePlate, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.demo.entities;
+
+// Fixed-point form of the parking fee arithmetic. Minutes are hundredths of a minute rounded
+// HALF_UP, exactly like Vehicle.millisecondsToMinutes, and fees keep the scale that the
+// BigDecimal multiplication by the tax would give, so results convert back bit-for-bit.
+public final class FeeCalculator {
+    public static final int MINUTES_SCALE = 2;
+    public static final int NON_RESIDENT_FEE_SCALE = MINUTES_SCALE + 1;
+    public static final int RESIDENT_FEE_SCALE = MINUTES_SCALE + 2;
+
+    private static final long MILLISECONDS_PER_MINUTE = 60_000;
+    private static final long HALF_MINUTE = MILLISECONDS_PER_MINUTE / 2;
+    private static final long NON_RESIDENT_TAX = 5;
+    private static final long RESIDENT_TAX = 5;
+
+    private FeeCalculator() {
+    }
+
+    public static long centiMinutes(long milliseconds) {
+        if (milliseconds >= 0) {
+            return (Math.multiplyExact(milliseconds, 100) + HALF_MINUTE) / MILLISECONDS_PER_MINUTE;
+        }
+        return -((Math.multiplyExact(-milliseconds, 100) + HALF_MINUTE) / MILLISECONDS_PER_MINUTE);
+    }
+
+    public static long nonResidentFee(long durationOfStay) {
+        return centiMinutes(durationOfStay) * NON_RESIDENT_TAX;
+    }
+
+    public static long residentFee(long accumulatedTime) {
+        return centiMinutes(accumulatedTime) * RESIDENT_TAX;
+    }
+
+}
@@ -13,18 +13,21 @@ import java.math.BigDecimal;
 @Getter
 @Setter
 public class NonResidentVehicle extends Vehicle {
-    private static final BigDecimal tax = BigDecimal.valueOf(0.5);
-
     public NonResidentVehicle(String licensePlate) {
         super(licensePlate, VehicleEnum.NON_RESIDENT);
     }
 
     @Override
     public BigDecimal calculateParkingFee() {
-        BigDecimal parkingFee = millisecondsToMinutes(calculateDurationOfStay()).multiply(tax);
+        BigDecimal parkingFee = calculateParkingFee(calculateDurationOfStay());
         setEntryTime(null);
         setExitTime(null);
         return parkingFee;
     }
 
+    public static BigDecimal calculateParkingFee(long durationOfStay) {
+        return BigDecimal.valueOf(FeeCalculator.nonResidentFee(durationOfStay),
+                FeeCalculator.NON_RESIDENT_FEE_SCALE);
+    }
+
 }
@@ -1,6 +1,7 @@
 package com.example.demo.entities;
 
 import com.example.demo.enums.VehicleEnum;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -14,8 +15,9 @@ import java.util.List;
 @Getter
 @Setter
 public class OfficialVehicle extends Vehicle {
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "official_vehicle_id")
+    // Read-only inverse side; stays are inserted through StayRepository so a checkout never loads them.
+    @JsonIgnore
+    @OneToMany(mappedBy = "officialVehicle")
     private List<Stay> stayList = new ArrayList<>();
 
     public OfficialVehicle(String licensePlate) {
@@ -27,20 +29,4 @@ public class OfficialVehicle extends Vehicle {
         return BigDecimal.ZERO;
     }
 
-    public void addStay() {
-        Stay stay = Stay.builder()
-                .entryTime(getEntryTime())
-                .exitTime(getExitTime())
-                .durationOfStay(millisecondsToMinutes(calculateDurationOfStay()))
-                .officialVehicle(this)
-                .build();
-        stayList.add(stay);
-
-        clearTimes();
-    }
-
-    public void clearStayList() {
-        this.stayList = null;
-    }
-
 }
@@ -0,0 +1,57 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+// Parking time billed to a resident for one month, keyed by the vehicle and the first day of the month.
+// Check-outs add to the open invoice of their exit month; month close stores the fee and marks the
+// invoice closed, after which it is never written again.
+@Entity
+@IdClass(ResidentInvoice.Key.class)
+@Table(indexes = @Index(name = "idx_resident_invoice_facility_month_plate",
+        columnList = "facility, billing_month, license_plate"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResidentInvoice {
+    @Id
+    @Column(name = "resident_vehicle_id")
+    private Long residentVehicleId;
+    @Id
+    @Column(name = "billing_month")
+    private LocalDate billingMonth;
+    @Column(nullable = false)
+    private String facility;
+    @Column(name = "license_plate", nullable = false)
+    private String licensePlate;
+    @Column(name = "accumulated_time", nullable = false)
+    private long accumulatedTime;
+    @Column(nullable = false)
+    private boolean closed;
+    @Column(precision = 38, scale = FeeCalculator.RESIDENT_FEE_SCALE)
+    private BigDecimal fee;
+
+    public static LocalDate billingMonth(Instant exitTime, ZoneId zone) {
+        return exitTime.atZone(zone).toLocalDate().withDayOfMonth(1);
+    }
+
+    public void close() {
+        this.fee = ResidentVehicle.calculateParkingFee(accumulatedTime);
+        this.closed = true;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long residentVehicleId;
+        private LocalDate billingMonth;
+    }
+}
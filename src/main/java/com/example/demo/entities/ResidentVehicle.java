@@ -14,25 +14,20 @@ import java.math.BigDecimal;
 @Getter
 @Setter
 public class ResidentVehicle extends Vehicle{
-    private long accumulatedTime;
-
-    private static final BigDecimal tax = BigDecimal.valueOf(0.05);
 
     public ResidentVehicle(String licensePlate) {
         super(licensePlate, VehicleEnum.RESIDENT);
     }
 
+    // Residents pay nothing at the gate; their parking time is billed monthly through ResidentInvoice
     @Override
     public BigDecimal calculateParkingFee() {
-        return millisecondsToMinutes(accumulatedTime).multiply(tax);
-    }
-
-    public void addStayTimeToAccumulatedTime(){
-        this.accumulatedTime += calculateDurationOfStay();
+        return BigDecimal.ZERO;
     }
 
-    public void clearAccumulatedTime(){
-        this.accumulatedTime = 0;
+    public static BigDecimal calculateParkingFee(long accumulatedTime) {
+        return BigDecimal.valueOf(FeeCalculator.residentFee(accumulatedTime),
+                FeeCalculator.RESIDENT_FEE_SCALE);
     }
 
 }
@@ -4,23 +4,46 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.math.BigDecimal;
-import java.util.Calendar;
+import java.time.Instant;
 
 @Entity
+@Table(indexes = @Index(name = "idx_stay_facility_official_vehicle_entry_time",
+        columnList = "facility, official_vehicle_id, entry_time_epoch_ms"))
 @Builder
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Stay {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stay_seq")
+    @SequenceGenerator(name = "stay_seq", sequenceName = "stay_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "official_vehicle_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private OfficialVehicle officialVehicle;
 
-    private Calendar entryTime;
-    private Calendar exitTime;
+    @Column(nullable = false)
+    private String facility;
+
+    @Column(name = "entry_time_epoch_ms")
+    @Convert(converter = EpochMillisConverter.class)
+    private Instant entryTime;
+    @Column(name = "exit_time_epoch_ms", nullable = false)
+    @Convert(converter = EpochMillisConverter.class)
+    private Instant exitTime;
     private BigDecimal durationOfStay;
+
+    public static Stay of(OfficialVehicle officialVehicle, String facility, Instant entryTime, Instant exitTime) {
+        return Stay.builder()
+                .facility(facility)
+                .entryTime(entryTime)
+                .exitTime(exitTime)
+                .durationOfStay(Vehicle.millisecondsToMinutes
+                        (exitTime.toEpochMilli() - entryTime.toEpochMilli()))
+                .officialVehicle(officialVehicle)
+                .build();
+    }
 }
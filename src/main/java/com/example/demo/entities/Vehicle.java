@@ -1,51 +1,118 @@
 package com.example.demo.entities;
 
 import com.example.demo.enums.VehicleEnum;
+import com.example.demo.services.VehicleRegistryListener;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Calendar;
+import java.time.Clock;
+import java.time.Instant;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "uk_vehicle_plate_key", columnList = "plate_key", unique = true),
+        @Index(name = "idx_vehicle_facility_plate_key", columnList = "facility, plate_key")
+})
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "vehicle_type")
+@EntityListeners(VehicleRegistryListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public abstract class Vehicle {
+    public static final String DEFAULT_FACILITY = "MAIN";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vehicle_seq")
+    @SequenceGenerator(name = "vehicle_seq", sequenceName = "vehicle_seq", allocationSize = 50)
     private Long id;
     @Column(unique = true)
     private String licensePlate;
-    private Calendar entryTime;
-    private Calendar exitTime;
+    @Column(name = "plate_key", nullable = false)
+    @Setter(AccessLevel.NONE)
+    private String plateKey;
+    @Column(name = "entry_time_epoch_ms")
+    @Convert(converter = EpochMillisConverter.class)
+    private Instant entryTime;
+    @Column(name = "exit_time_epoch_ms")
+    @Convert(converter = EpochMillisConverter.class)
+    private Instant exitTime;
     private VehicleEnum vehicleEnum;
+    @Column(nullable = false)
+    @Setter(AccessLevel.NONE)
+    private String facility = DEFAULT_FACILITY;
 
     public Vehicle(String licensePlate, VehicleEnum vehicleEnum) {
-        this.licensePlate = licensePlate;
+        setLicensePlate(licensePlate);
         this.vehicleEnum = vehicleEnum;
     }
 
+    public void setLicensePlate(String licensePlate) {
+        this.licensePlate = licensePlate;
+        this.plateKey = plateKey(licensePlate);
+    }
+
+    public void setFacility(String facility) {
+        this.facility = facilityKey(facility);
+    }
+
+    // Cameras read the same plate as "abc1234", "ABC-1234" or "ABC 1234"; they all share this key
+    public static String plateKey(String licensePlate) {
+        if (licensePlate == null) {
+            return null;
+        }
+        StringBuilder plateKey = new StringBuilder(licensePlate.length());
+        for (int i = 0; i < licensePlate.length(); i++) {
+            char c = licensePlate.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                plateKey.append(Character.toUpperCase(c));
+            }
+        }
+        return plateKey.toString();
+    }
+
+    // A vehicle is registered at one facility; requests that name none go to the default facility
+    public static String facilityKey(String facility) {
+        if (facility == null || facility.isBlank()) {
+            return DEFAULT_FACILITY;
+        }
+        return facility.trim().toUpperCase();
+    }
+
+    public static Vehicle of(VehicleEnum vehicleEnum, String licensePlate) {
+        return switch (vehicleEnum) {
+            case OFFICIAL -> new OfficialVehicle(licensePlate);
+            case RESIDENT -> new ResidentVehicle(licensePlate);
+            case NON_RESIDENT -> new NonResidentVehicle(licensePlate);
+        };
+    }
+
     public abstract BigDecimal calculateParkingFee();
 
     public long calculateDurationOfStay() {
         if (entryTime != null && exitTime != null) {
-            return exitTime.getTimeInMillis() - entryTime.getTimeInMillis();
+            return exitTime.toEpochMilli() - entryTime.toEpochMilli();
         } else {
             throw new IllegalStateException("Entry or exit time not set");
         }
     }
 
     public void setEntryTimeCurrentTime() {
-        this.entryTime = Calendar.getInstance();
+        setEntryTimeCurrentTime(Clock.systemUTC());
+    }
+
+    public void setEntryTimeCurrentTime(Clock clock) {
+        this.entryTime = Instant.ofEpochMilli(clock.millis());
     }
 
     public void setExitTimeCurrentTime() {
-        this.exitTime = Calendar.getInstance();
+        setExitTimeCurrentTime(Clock.systemUTC());
+    }
+
+    public void setExitTimeCurrentTime(Clock clock) {
+        this.exitTime = Instant.ofEpochMilli(clock.millis());
     }
 
     public void clearTimes() {
@@ -54,8 +121,7 @@ public abstract class Vehicle {
     }
 
     public static BigDecimal millisecondsToMinutes(long milliseconds){
-        return BigDecimal.valueOf(milliseconds)
-                .divide(BigDecimal.valueOf(1000 * 60), 2, RoundingMode.HALF_UP);
+        return BigDecimal.valueOf(FeeCalculator.centiMinutes(milliseconds), FeeCalculator.MINUTES_SCALE);
     }
 
 }
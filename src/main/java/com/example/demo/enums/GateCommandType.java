@@ -0,0 +1,8 @@
+package com.example.demo.enums;
+
+public enum GateCommandType {
+    CHECK_IN,
+    CHECK_OUT_RESIDENT,
+    CHECK_OUT_OFFICIAL,
+    CHECK_OUT_NON_RESIDENT
+}
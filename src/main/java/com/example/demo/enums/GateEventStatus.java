@@ -0,0 +1,9 @@
+package com.example.demo.enums;
+
+public enum GateEventStatus {
+    CHECKED_IN,
+    CHECKED_OUT,
+    ALREADY_PARKED,
+    NOT_PARKED,
+    NOT_FOUND
+}
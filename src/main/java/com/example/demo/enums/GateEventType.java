@@ -0,0 +1,6 @@
+package com.example.demo.enums;
+
+public enum GateEventType {
+    CHECK_IN,
+    CHECK_OUT
+}
@@ -0,0 +1,11 @@
+package com.example.demo.enums;
+
+public enum GateReplyStatus {
+    CHECKED_IN,
+    CHECKED_OUT,
+    NOT_FOUND,
+    NOT_PARKED,
+    BUSY,
+    INVALID,
+    ERROR
+}
@@ -0,0 +1,34 @@
+package com.example.demo.events;
+
+import com.example.demo.enums.GateEventType;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.projections.ParkedVehicle;
+
+import java.time.Instant;
+
+public record GateEvent(long sequence, GateEventType type, Long vehicleId, String licensePlate,
+                        VehicleEnum vehicleEnum, Instant entryTime, Instant exitTime, String facility) {
+
+    public static GateEvent checkIn(ParkedVehicle parkedVehicle) {
+        return new GateEvent(0, GateEventType.CHECK_IN, parkedVehicle.vehicleId(), parkedVehicle.licensePlate(),
+                parkedVehicle.vehicleEnum(), parkedVehicle.entryTime(), null, parkedVehicle.facility());
+    }
+
+    public static GateEvent checkOut(ParkedVehicle parkedVehicle, Instant exitTime) {
+        return new GateEvent(0, GateEventType.CHECK_OUT, parkedVehicle.vehicleId(), parkedVehicle.licensePlate(),
+                parkedVehicle.vehicleEnum(), parkedVehicle.entryTime(), exitTime, parkedVehicle.facility());
+    }
+
+    public GateEvent withSequence(long sequence) {
+        return new GateEvent(sequence, type, vehicleId, licensePlate, vehicleEnum, entryTime, exitTime, facility);
+    }
+
+    public ParkedVehicle parkedVehicle() {
+        return new ParkedVehicle(vehicleId, licensePlate, vehicleEnum, entryTime, facility);
+    }
+
+    public long durationOfStay() {
+        return exitTime.toEpochMilli() - entryTime.toEpochMilli();
+    }
+
+}
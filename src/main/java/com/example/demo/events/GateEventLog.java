@@ -0,0 +1,245 @@
+package com.example.demo.events;
+
+import com.example.demo.entities.Vehicle;
+import com.example.demo.enums.GateEventType;
+import com.example.demo.enums.VehicleEnum;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only log of gate events accepted but not yet written to the database, kept in segment
+// files named after the first sequence they may hold. Each record is [length][crc32][payload];
+// a torn or corrupt tail is ignored on replay. The checkpoint file holds the sequence of the last
+// event committed to the database, and a checkpoint deletes the segments that hold nothing after it,
+// so the log stays small under sustained traffic.
+public class GateEventLog implements Closeable {
+    private static final int HEADER_SIZE = 8;
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "gate-events-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String LEGACY_LOG = "gate-events.log";
+
+    private final Path directory;
+    private final Path checkpointFile;
+    private final long segmentSize;
+    private FileChannel channel;
+    private long lastSequence;
+
+    public GateEventLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public GateEventLog(Path directory, long segmentSize) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.checkpointFile = directory.resolve("gate-events.checkpoint");
+        this.segmentSize = segmentSize;
+    }
+
+    public List<GateEvent> open() throws IOException {
+        long checkpoint = readCheckpoint();
+        List<GateEvent> pending = new ArrayList<>();
+        lastSequence = checkpoint;
+        adoptLegacyLog();
+        List<Path> segments = segments();
+        long validLength = 0;
+        for (Path segment : segments) {
+            validLength = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+                while (true) {
+                    StoredEvent stored = readRecord(in);
+                    if (stored == null) {
+                        break;
+                    }
+                    // The stored length, since re-encoding an older record would not give back its size
+                    GateEvent event = stored.event();
+                    validLength += HEADER_SIZE + stored.length();
+                    lastSequence = Math.max(lastSequence, event.sequence());
+                    if (event.sequence() > checkpoint) {
+                        pending.add(event);
+                    }
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            roll(lastSequence + 1);
+        } else {
+            channel = FileChannel.open(segments.get(segments.size() - 1), StandardOpenOption.WRITE);
+            channel.truncate(validLength);
+            channel.position(validLength);
+        }
+        return pending;
+    }
+
+    public List<GateEvent> append(List<GateEvent> events) throws IOException {
+        List<GateEvent> sequenced = new ArrayList<>(events.size());
+        for (GateEvent event : events) {
+            GateEvent sequencedEvent = event.withSequence(++lastSequence);
+            byte[] payload = encode(sequencedEvent);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length)
+                    .putInt(payload.length)
+                    .putInt((int) crc.getValue())
+                    .put(payload)
+                    .flip();
+            if (channel.position() > 0 && channel.position() + buffer.remaining() > segmentSize) {
+                roll(sequencedEvent.sequence());
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            sequenced.add(sequencedEvent);
+        }
+        channel.force(false);
+        return sequenced;
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    // Must not run concurrently with append
+    public void checkpoint(long sequence) throws IOException {
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.writeString(temporary, Long.toString(sequence), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (sequence == lastSequence && channel.position() > 0) {
+            // Nothing is left to replay, so the open segment starts over instead of rolling to a new file
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+        }
+        prune(sequence);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void roll(long firstSequence) throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+        channel = FileChannel.open(directory.resolve(fileName(firstSequence)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    // A segment can go once the next one starts at or before the first event not yet checkpointed;
+    // the open segment always stays
+    private void prune(long checkpoint) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (sequenceOf(segments.get(i + 1)) > checkpoint + 1) {
+                break;
+            }
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    // The single log file written before segments were introduced becomes the first segment
+    private void adoptLegacyLog() throws IOException {
+        Path legacyLog = directory.resolve(LEGACY_LOG);
+        if (Files.exists(legacyLog) && segments().isEmpty()) {
+            Files.move(legacyLog, directory.resolve(fileName(1)), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(checkpointFile).trim());
+    }
+
+    private static String fileName(long sequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static StoredEvent readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > 4096) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            return new StoredEvent(decode(payload), length);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    static byte[] encode(GateEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(event.sequence());
+            out.writeByte(event.type().ordinal());
+            out.writeLong(event.vehicleId());
+            out.writeUTF(event.licensePlate());
+            out.writeByte(event.vehicleEnum().ordinal());
+            out.writeLong(event.entryTime().toEpochMilli());
+            out.writeLong(event.exitTime() == null ? -1 : event.exitTime().toEpochMilli());
+            out.writeUTF(event.facility());
+        }
+        return bytes.toByteArray();
+    }
+
+    static GateEvent decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long sequence = in.readLong();
+            GateEventType type = GateEventType.values()[in.readByte()];
+            long vehicleId = in.readLong();
+            String licensePlate = in.readUTF();
+            VehicleEnum vehicleEnum = VehicleEnum.values()[in.readByte()];
+            Instant entryTime = Instant.ofEpochMilli(in.readLong());
+            long exitTime = in.readLong();
+            // Records written before facilities were introduced end here
+            String facility = in.available() > 0 ? in.readUTF() : Vehicle.DEFAULT_FACILITY;
+            return new GateEvent(sequence, type, vehicleId, licensePlate, vehicleEnum, entryTime,
+                    exitTime < 0 ? null : Instant.ofEpochMilli(exitTime), facility);
+        }
+    }
+
+    private record StoredEvent(GateEvent event, int length) {
+    }
+
+}
@@ -0,0 +1,280 @@
+package com.example.demo.events;
+
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.projections.ParkedVehicle;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Memory-mapped journal of every gate event the service accepted, numbered by its own sequence.
+// Events go to fixed-size segment files named after their first sequence, as [length][crc32][payload]
+// records; a zero length marks the unused end of a segment. A snapshot holds the parked vehicles as of
+// one sequence, so recovery reads the latest snapshot and only the events after it. Segments older than
+// the latest snapshot are kept for audits and replays until more than retainedSegments exist.
+public class GateJournal implements Closeable {
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_PAYLOAD_SIZE = 4096;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int RETAINED_SNAPSHOTS = 2;
+    private static final VehicleEnum[] VEHICLE_ENUMS = VehicleEnum.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int retainedSegments;
+    private MappedByteBuffer segment;
+    private long lastSequence;
+
+    public GateJournal(Path directory, int segmentSize, int retainedSegments) throws IOException {
+        if (segmentSize < HEADER_SIZE + MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("Journal segments must hold at least one record");
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.retainedSegments = Math.max(1, retainedSegments);
+    }
+
+    public synchronized void open() throws IOException {
+        List<Path> segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        if (segments.isEmpty()) {
+            lastSequence = latestSnapshotSequence();
+            roll();
+            return;
+        }
+        Path last = segments.get(segments.size() - 1);
+        lastSequence = sequenceOf(last, SEGMENT_PREFIX, SEGMENT_SUFFIX) - 1;
+        segment = map(last, FileChannel.MapMode.READ_WRITE);
+        GateEvent event;
+        while ((event = readRecord(segment)) != null) {
+            lastSequence = event.sequence();
+        }
+        // Clear a torn record after the valid end so new records are not followed by its leftovers
+        for (int i = segment.position(); i < Math.min(segment.limit(), segment.position() + HEADER_SIZE + MAX_PAYLOAD_SIZE); i++) {
+            segment.put(i, (byte) 0);
+        }
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized List<GateEvent> append(List<GateEvent> events) throws IOException {
+        List<GateEvent> sequenced = new ArrayList<>(events.size());
+        for (GateEvent event : events) {
+            GateEvent sequencedEvent = event.withSequence(lastSequence + 1);
+            byte[] payload = GateEventLog.encode(sequencedEvent);
+            if (segment.remaining() < HEADER_SIZE + payload.length) {
+                roll();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            segment.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            lastSequence = sequencedEvent.sequence();
+            sequenced.add(sequencedEvent);
+        }
+        return sequenced;
+    }
+
+    // The caller makes sure no event up to sequence is still missing from parkedVehicles
+    public void snapshot(long sequence, Collection<ParkedVehicle> parkedVehicles) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + parkedVehicles.size() * 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sequence);
+            out.writeInt(parkedVehicles.size());
+            for (ParkedVehicle parkedVehicle : parkedVehicles) {
+                out.writeLong(parkedVehicle.vehicleId());
+                out.writeUTF(parkedVehicle.licensePlate());
+                out.writeByte(parkedVehicle.vehicleEnum().ordinal());
+                out.writeLong(parkedVehicle.entryTime().toEpochMilli());
+                out.writeUTF(parkedVehicle.facility());
+            }
+        }
+        byte[] body = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        byte[] contents = ByteBuffer.allocate(body.length + 4).put(body).putInt((int) crc.getValue()).array();
+
+        synchronized (this) {
+            segment.force();
+        }
+        Path snapshot = directory.resolve(fileName(SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        Files.write(temporary, contents, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        prune(sequence);
+    }
+
+    // Latest readable snapshot and the events after it, or empty when there is no snapshot or
+    // the segments no longer hold every event after it
+    public Optional<Recovery> recover() throws IOException {
+        List<Path> snapshots = files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Optional<Recovery> recovery = readSnapshot(snapshots.get(i));
+            if (recovery.isPresent()) {
+                return withTail(recovery.get());
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void replay(long fromSequence, Consumer<GateEvent> consumer) throws IOException {
+        List<Path> segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && sequenceOf(segments.get(i + 1), SEGMENT_PREFIX, SEGMENT_SUFFIX) <= fromSequence) {
+                continue;
+            }
+            MappedByteBuffer buffer = map(segments.get(i), FileChannel.MapMode.READ_ONLY);
+            GateEvent event;
+            while ((event = readRecord(buffer)) != null) {
+                if (event.sequence() >= fromSequence) {
+                    consumer.accept(event);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    private Optional<Recovery> withTail(Recovery snapshot) throws IOException {
+        List<GateEvent> tail = new ArrayList<>();
+        replay(snapshot.sequence() + 1, tail::add);
+        long expected = snapshot.sequence() + 1;
+        for (GateEvent event : tail) {
+            if (event.sequence() != expected++) {
+                return Optional.empty();
+            }
+        }
+        if (expected <= lastSequence()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Recovery(snapshot.sequence(), snapshot.parkedVehicles(), tail));
+    }
+
+    private Optional<Recovery> readSnapshot(Path snapshot) throws IOException {
+        byte[] bytes = Files.readAllBytes(snapshot);
+        if (bytes.length < 16) {
+            return Optional.empty();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt()) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4))) {
+            long sequence = in.readLong();
+            int count = in.readInt();
+            List<ParkedVehicle> parkedVehicles = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                parkedVehicles.add(new ParkedVehicle(in.readLong(), in.readUTF(), VEHICLE_ENUMS[in.readByte()],
+                        Instant.ofEpochMilli(in.readLong()), in.readUTF()));
+            }
+            // Snapshots written before facilities were introduced do not line up; the index is rebuilt instead
+            return in.available() == 0 ? Optional.of(new Recovery(sequence, parkedVehicles, List.of())) : Optional.empty();
+        } catch (EOFException | UTFDataFormatException | ArrayIndexOutOfBoundsException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void roll() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        Path next = directory.resolve(fileName(SEGMENT_PREFIX, lastSequence + 1, SEGMENT_SUFFIX));
+        segment = map(next, FileChannel.MapMode.READ_WRITE);
+    }
+
+    private MappedByteBuffer map(Path file, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            return channel.map(mode, 0, mode == FileChannel.MapMode.READ_ONLY ? channel.size() : segmentSize);
+        }
+    }
+
+    private void prune(long snapshotSequence) throws IOException {
+        List<Path> snapshots = files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = 0; i < snapshots.size() - RETAINED_SNAPSHOTS; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        // A segment can go once the next one starts at or before the oldest event a recovery still needs
+        List<Path> segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i = 0; i < segments.size() - retainedSegments; i++) {
+            if (sequenceOf(segments.get(i + 1), SEGMENT_PREFIX, SEGMENT_SUFFIX) > snapshotSequence + 1) {
+                break;
+            }
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private long latestSnapshotSequence() throws IOException {
+        List<Path> snapshots = files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        return snapshots.isEmpty() ? 0 : sequenceOf(snapshots.get(snapshots.size() - 1), SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+    }
+
+    private List<Path> files(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(suffix);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String fileName(String prefix, long sequence, String suffix) {
+        return String.format("%s%020d%s", prefix, sequence, suffix);
+    }
+
+    private static long sequenceOf(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private static GateEvent readRecord(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > MAX_PAYLOAD_SIZE || length > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return null;
+        }
+        return GateEventLog.decode(payload);
+    }
+
+    public record Recovery(long sequence, List<ParkedVehicle> parkedVehicles, List<GateEvent> tail) {
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.example.demo.exceptions;
 
+import com.example.demo.metrics.OperationMetrics;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -15,12 +17,17 @@ import java.util.List;
 
 @ControllerAdvice
 public class ExceptionsHandler {
+
+    @Autowired
+    private OperationMetrics operationMetrics;
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<StandardError> Exception(Exception e, HttpServletRequest request) {
         String error = "Server error";
         HttpStatus status = HttpStatus.INTERNAL_SERVER_ERROR;
         StandardError err = new StandardError(Instant.now(), status.value(), error,
                 e.getMessage(), request.getRequestURI());
+        operationMetrics.error(e, status.value());
         return ResponseEntity.status(status).body(err);
     }
 
@@ -36,6 +43,7 @@ public class ExceptionsHandler {
 
         StandardError err = new StandardError(Instant.now(), status.value(), error,
                 errors.toString(), request.getRequestURI());
+        operationMetrics.error(e, status.value());
         return ResponseEntity.status(status).body(err);
     }
 
@@ -46,6 +54,7 @@ public class ExceptionsHandler {
         HttpStatus status = HttpStatus.BAD_REQUEST;
         StandardError err = new StandardError(Instant.now(), status.value(), error,
                 e.getMessage(), request.getRequestURI());
+        operationMetrics.error(e, status.value());
         return ResponseEntity.status(status).body(err);
     }
 
@@ -56,6 +65,7 @@ public class ExceptionsHandler {
         HttpStatus status = HttpStatus.BAD_REQUEST;
         StandardError err = new StandardError(Instant.now(), status.value(), error,
                 e.getMessage(), request.getRequestURI());
+        operationMetrics.error(e, status.value());
         return ResponseEntity.status(status).body(err);
     }
 
@@ -66,6 +76,18 @@ public class ExceptionsHandler {
         HttpStatus status = HttpStatus.NOT_FOUND;
         StandardError err = new StandardError(Instant.now(), status.value(), error,
                 e.getMessage(), request.getRequestURI());
+        operationMetrics.error(e, status.value());
+        return ResponseEntity.status(status).body(err);
+    }
+
+    @ExceptionHandler(GateBackpressureException.class)
+    public ResponseEntity<StandardError> GateBackpressureException
+            (GateBackpressureException e, HttpServletRequest request) {
+        String error = "Service busy";
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        StandardError err = new StandardError(Instant.now(), status.value(), error,
+                e.getMessage(), request.getRequestURI());
+        operationMetrics.error(e, status.value());
         return ResponseEntity.status(status).body(err);
     }
 
@@ -0,0 +1,7 @@
+package com.example.demo.exceptions;
+
+public class GateBackpressureException extends RuntimeException {
+    public GateBackpressureException() {
+        super("Gate event queue is full. Please retry shortly.");
+    }
+}
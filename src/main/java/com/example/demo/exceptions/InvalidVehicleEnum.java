@@ -3,8 +3,10 @@ package com.example.demo.exceptions;
 import com.example.demo.enums.VehicleEnum;
 
 public class InvalidVehicleEnum extends RuntimeException{
+    private static final String ALL_VEHICLES = getAllVehicles();
+
     public InvalidVehicleEnum(String invalidVehicle) {
-        super("Invalid vehicle type: " + invalidVehicle + ". Vehicles available: " + getAllVehicles());
+        super("Invalid vehicle type: " + invalidVehicle + ". Vehicles available: " + ALL_VEHICLES, null, false, false);
     }
 
     private static String getAllVehicles() {
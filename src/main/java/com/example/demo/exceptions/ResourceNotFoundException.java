@@ -1,11 +1,12 @@
 package com.example.demo.exceptions;
 
+// Thrown for every unknown plate at the gate, so it skips stack trace capture.
 public class ResourceNotFoundException extends RuntimeException {
     public ResourceNotFoundException() {
-        super("Resource not found");
+        super("Resource not found", null, false, false);
     }
 
     public ResourceNotFoundException(String property, String value) {
-        super("Resource not found - " + property + ": " + value);
+        super("Resource not found - " + property + ": " + value, null, false, false);
     }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.example.demo.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+// Counts executed statements and fetched result rows towards the operation running on the
+// calling thread, so both JPA queries and JdbcTemplate batches show up in OperationMetrics.
+public class CountingDataSource extends DelegatingDataSource {
+
+    public CountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, super.getConnection(username, password));
+    }
+
+    private static <T> T proxy(Class<T> type, T target) {
+        return type.cast(Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, new CountingHandler(target)));
+    }
+
+    private record CountingHandler(Object target) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            String name = method.getName();
+            if (target instanceof ResultSet) {
+                if (name.equals("next") && (Boolean) result) {
+                    OperationSample.rowLoaded();
+                }
+                return result;
+            }
+            if (name.startsWith("execute")) {
+                OperationSample.statementExecuted();
+            }
+            if (result instanceof CallableStatement statement) {
+                return proxy(CallableStatement.class, statement);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxy(PreparedStatement.class, statement);
+            }
+            if (result instanceof Statement statement) {
+                return proxy(Statement.class, statement);
+            }
+            if (result instanceof ResultSet resultSet && !name.equals("getGeneratedKeys")) {
+                return proxy(ResultSet.class, resultSet);
+            }
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.example.demo.metrics;
+
+import com.example.demo.enums.VehicleEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Times service operations and records how many SQL statements and result rows each one needed.
+// An operation started inside another one is counted as part of the outer operation.
+@Component
+public class OperationMetrics {
+    public static final String OPERATION_TIMER = "vehicle.operation";
+    public static final String OPERATION_VEHICLES = "vehicle.operation.vehicles";
+    public static final String OPERATION_STATEMENTS = "vehicle.operation.sql.statements";
+    public static final String OPERATION_ROWS = "vehicle.operation.sql.rows";
+    public static final String ERRORS = "vehicle.errors";
+    public static final String LATE_RESIDENT_STAYS = "vehicle.billing.late.resident.stays";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public <T> T record(String operation, Supplier<T> action) {
+        if (OperationSample.current() != null) {
+            return action.get();
+        }
+        OperationSample sample = OperationSample.start(operation);
+        String exception = "none";
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            OperationSample.end();
+            finish(sample, exception);
+        }
+    }
+
+    public void record(String operation, Runnable action) {
+        record(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void vehicles(String operation, VehicleEnum vehicleEnum, long count) {
+        if (count > 0) {
+            Counter.builder(OPERATION_VEHICLES)
+                    .tag("operation", operation)
+                    .tag("vehicleEnum", vehicleEnum.name())
+                    .register(meterRegistry)
+                    .increment(count);
+        }
+    }
+
+    // Resident stays that ended in a closed billing month, by whether a later invoice took them
+    public void lateResidentStays(String outcome, long count) {
+        if (count > 0) {
+            Counter.builder(LATE_RESIDENT_STAYS)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .increment(count);
+        }
+    }
+
+    public void error(Exception e, int status) {
+        Counter.builder(ERRORS)
+                .tag("exception", e.getClass().getSimpleName())
+                .tag("status", Integer.toString(status))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void finish(OperationSample sample, String exception) {
+        Timer.builder(OPERATION_TIMER)
+                .tag("operation", sample.operation)
+                .tag("exception", exception)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - sample.startNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(OPERATION_STATEMENTS)
+                .tag("operation", sample.operation)
+                .register(meterRegistry)
+                .record(sample.statements);
+        DistributionSummary.builder(OPERATION_ROWS)
+                .tag("operation", sample.operation)
+                .register(meterRegistry)
+                .record(sample.rows);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.example.demo.metrics;
+
+// Statements and rows seen by the JDBC layer while an operation runs on the current thread.
+class OperationSample {
+    private static final ThreadLocal<OperationSample> CURRENT = new ThreadLocal<>();
+
+    final String operation;
+    final long startNanos;
+    long statements;
+    long rows;
+
+    private OperationSample(String operation) {
+        this.operation = operation;
+        this.startNanos = System.nanoTime();
+    }
+
+    static OperationSample current() {
+        return CURRENT.get();
+    }
+
+    static OperationSample start(String operation) {
+        OperationSample sample = new OperationSample(operation);
+        CURRENT.set(sample);
+        return sample;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static void statementExecuted() {
+        OperationSample sample = CURRENT.get();
+        if (sample != null) {
+            sample.statements++;
+        }
+    }
+
+    static void rowLoaded() {
+        OperationSample sample = CURRENT.get();
+        if (sample != null) {
+            sample.rows++;
+        }
+    }
+
+}
@@ -0,0 +1,6 @@
+package com.example.demo.projections;
+
+import com.example.demo.enums.VehicleEnum;
+
+public record OccupancyCount(String facility, VehicleEnum vehicleEnum, Long parked) {
+}
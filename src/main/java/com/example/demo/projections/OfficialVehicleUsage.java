@@ -0,0 +1,20 @@
+package com.example.demo.projections;
+
+import com.example.demo.entities.FeeCalculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+
+public record OfficialVehicleUsage(String licensePlate, long stayCount, BigDecimal totalDurationOfStay,
+                                   BigDecimal averageDurationOfStay, Instant firstEntry, Instant lastEntry) {
+
+    public OfficialVehicleUsage(String licensePlate, Long stayCount, BigDecimal totalDurationOfStay,
+                                Instant firstEntry, Instant lastEntry) {
+        this(licensePlate, stayCount, totalDurationOfStay,
+                totalDurationOfStay.divide(BigDecimal.valueOf(stayCount), FeeCalculator.MINUTES_SCALE,
+                        RoundingMode.HALF_UP),
+                firstEntry, lastEntry);
+    }
+
+}
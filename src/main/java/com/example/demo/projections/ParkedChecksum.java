@@ -0,0 +1,16 @@
+package com.example.demo.projections;
+
+import com.example.demo.enums.VehicleEnum;
+
+import java.time.Instant;
+
+// Parked vehicles of one facility and type with a checksum of which vehicle entered when, so two sets of
+// parked vehicles that merely have the same size tell apart
+public record ParkedChecksum(String facility, VehicleEnum vehicleEnum, Long parked, Long checksum) {
+
+    // The term VehicleRepository.checksumParkedByFacilityAndVehicleEnum sums per parked vehicle
+    public static long term(long vehicleId, Instant entryTime) {
+        return Math.floorMod(vehicleId * 1000003 + entryTime.toEpochMilli(), 2147483647L);
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.example.demo.projections;
+
+import com.example.demo.enums.VehicleEnum;
+
+import java.time.Instant;
+
+public record ParkedVehicle(Long vehicleId, String licensePlate, VehicleEnum vehicleEnum, Instant entryTime,
+                            String facility) {
+
+    public long durationOfStayUntil(Instant exitTime) {
+        return exitTime.toEpochMilli() - entryTime.toEpochMilli();
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.example.demo.projections;
+
+import com.example.demo.entities.ResidentVehicle;
+import com.example.demo.entities.Vehicle;
+
+import java.math.BigDecimal;
+
+public record ResidentPayment(String licensePlate, BigDecimal parkingTime, BigDecimal value) {
+
+    public ResidentPayment(String licensePlate, long accumulatedTime) {
+        this(licensePlate, Vehicle.millisecondsToMinutes(accumulatedTime),
+                ResidentVehicle.calculateParkingFee(accumulatedTime));
+    }
+
+    // A closed invoice carries the fee frozen at month close
+    public ResidentPayment(String licensePlate, long accumulatedTime, BigDecimal fee) {
+        this(licensePlate, Vehicle.millisecondsToMinutes(accumulatedTime),
+                fee != null ? fee : ResidentVehicle.calculateParkingFee(accumulatedTime));
+    }
+
+}
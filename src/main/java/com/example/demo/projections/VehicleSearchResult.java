@@ -0,0 +1,8 @@
+package com.example.demo.projections;
+
+import com.example.demo.enums.VehicleEnum;
+
+import java.time.Instant;
+
+public record VehicleSearchResult(String plateKey, String licensePlate, VehicleEnum vehicleEnum, Instant entryTime) {
+}
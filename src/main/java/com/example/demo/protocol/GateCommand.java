@@ -0,0 +1,7 @@
+package com.example.demo.protocol;
+
+import com.example.demo.enums.GateCommandType;
+
+// A command whose type byte is unknown decodes with a null type and is answered INVALID
+public record GateCommand(long correlationId, GateCommandType type, String licensePlate) {
+}
@@ -0,0 +1,133 @@
+package com.example.demo.protocol;
+
+import com.example.demo.entities.Vehicle;
+import com.example.demo.enums.GateReplyStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// One barrier controller connection. Commands are pipelined: the reader keeps reading while earlier
+// commands run, commands of different plates run concurrently and commands of the same plate run in
+// the order they arrived. Replies go out in completion order, so clients match them by correlation id.
+// At most maxInFlight commands run at once; beyond that the reader stops and TCP pushes back.
+@Slf4j
+class GateConnection implements Closeable {
+    private static final int MAX_REPLIES_PER_FLUSH = 256;
+
+    private final Socket socket;
+    private final Function<GateCommand, GateReply> handler;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final Consumer<GateConnection> onClose;
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> plateTails = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<GateReply> replies = new LinkedBlockingQueue<>();
+    private volatile boolean open = true;
+
+    GateConnection(Socket socket, Function<GateCommand, GateReply> handler, ExecutorService executor,
+                   int maxInFlight, Consumer<GateConnection> onClose) {
+        this.socket = socket;
+        this.handler = handler;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.onClose = onClose;
+    }
+
+    void start() {
+        Thread.ofVirtual().name("gate-protocol-reader-" + socket.getPort()).start(this::read);
+        Thread.ofVirtual().name("gate-protocol-writer-" + socket.getPort()).start(this::write);
+    }
+
+    private void read() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            GateCommand command;
+            while (open && (command = GateFrames.readCommand(in)) != null) {
+                inFlight.acquire();
+                dispatch(command);
+            }
+        } catch (IOException e) {
+            if (open) {
+                log.warn("Closing gate connection from {}: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    private void dispatch(GateCommand command) {
+        if (command.type() == null) {
+            reply(GateReply.of(command, GateReplyStatus.INVALID));
+            return;
+        }
+        String plateKey = Vehicle.plateKey(command.licensePlate());
+        CompletableFuture<Void> tail = plateTails.compute(plateKey, (key, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous)
+                        .thenApplyAsync(ignored -> handler.apply(command), executor)
+                        .handle((reply, e) -> {
+                            reply(e == null ? reply : failed(command, e));
+                            return null;
+                        }));
+        tail.whenComplete((result, e) -> plateTails.remove(plateKey, tail));
+    }
+
+    // Every command gets a reply and gives back its permit, even when the handler throws something it
+    // does not map or the executor rejects it, so the commands queued behind it for the plate still run.
+    private GateReply failed(GateCommand command, Throwable e) {
+        log.error("Gate command {} failed", command, e instanceof CompletionException ? e.getCause() : e);
+        return GateReply.of(command, GateReplyStatus.ERROR);
+    }
+
+    private void reply(GateReply reply) {
+        replies.add(reply);
+        inFlight.release();
+    }
+
+    private void write() {
+        List<GateReply> batch = new ArrayList<>(MAX_REPLIES_PER_FLUSH);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (open) {
+                GateReply first = replies.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                replies.drainTo(batch, MAX_REPLIES_PER_FLUSH - 1);
+                for (GateReply reply : batch) {
+                    GateFrames.writeReply(out, reply);
+                }
+                out.flush();
+                batch.clear();
+            }
+        } catch (IOException e) {
+            if (open) {
+                log.warn("Closing gate connection to {}: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Failed to close gate connection", e);
+        }
+        onClose.accept(this);
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.example.demo.protocol;
+
+import com.example.demo.entities.FeeCalculator;
+import com.example.demo.enums.GateCommandType;
+import com.example.demo.enums.GateReplyStatus;
+
+import java.io.*;
+import java.math.BigDecimal;
+
+// Frames of the binary gate protocol, each [int length][payload] in network byte order.
+// Command payload: [long correlationId][byte command][UTF licensePlate]
+// Reply payload:   [long correlationId][byte status], plus [long parkingFee in thousandths]
+//                  when a non-resident check-out returns a fee.
+public final class GateFrames {
+    public static final int MAX_FRAME_SIZE = 1024;
+
+    private static final int REPLY_SIZE = 9;
+    private static final int REPLY_WITH_FEE_SIZE = REPLY_SIZE + 8;
+    private static final GateCommandType[] COMMAND_TYPES = GateCommandType.values();
+    private static final GateReplyStatus[] REPLY_STATUSES = GateReplyStatus.values();
+
+    private GateFrames() {
+    }
+
+    // Returns null when the stream ends cleanly between two frames
+    public static GateCommand readCommand(DataInputStream in) throws IOException {
+        byte[] payload = readFrame(in);
+        if (payload == null) {
+            return null;
+        }
+        try (DataInputStream frame = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long correlationId = frame.readLong();
+            int command = frame.readUnsignedByte();
+            String licensePlate = frame.readUTF();
+            return new GateCommand(correlationId, command < COMMAND_TYPES.length ? COMMAND_TYPES[command] : null,
+                    licensePlate);
+        } catch (EOFException e) {
+            throw new IOException("Truncated gate command frame", e);
+        }
+    }
+
+    public static void writeCommand(DataOutputStream out, GateCommand command) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream frame = new DataOutputStream(bytes)) {
+            frame.writeLong(command.correlationId());
+            frame.writeByte(command.type().ordinal());
+            frame.writeUTF(command.licensePlate());
+        }
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    public static GateReply readReply(DataInputStream in) throws IOException {
+        byte[] payload = readFrame(in);
+        if (payload == null) {
+            return null;
+        }
+        if (payload.length != REPLY_SIZE && payload.length != REPLY_WITH_FEE_SIZE) {
+            throw new IOException("Invalid gate reply frame of " + payload.length + " bytes");
+        }
+        try (DataInputStream frame = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long correlationId = frame.readLong();
+            GateReplyStatus status = REPLY_STATUSES[frame.readUnsignedByte()];
+            BigDecimal parkingFee = payload.length == REPLY_WITH_FEE_SIZE
+                    ? BigDecimal.valueOf(frame.readLong(), FeeCalculator.NON_RESIDENT_FEE_SCALE)
+                    : null;
+            return new GateReply(correlationId, status, parkingFee);
+        }
+    }
+
+    public static void writeReply(DataOutputStream out, GateReply reply) throws IOException {
+        out.writeInt(reply.parkingFee() == null ? REPLY_SIZE : REPLY_WITH_FEE_SIZE);
+        out.writeLong(reply.correlationId());
+        out.writeByte(reply.status().ordinal());
+        if (reply.parkingFee() != null) {
+            out.writeLong(reply.parkingFee().setScale(FeeCalculator.NON_RESIDENT_FEE_SCALE).unscaledValue().longValueExact());
+        }
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid gate frame length " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+}
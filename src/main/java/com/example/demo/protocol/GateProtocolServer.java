@@ -0,0 +1,114 @@
+package com.example.demo.protocol;
+
+import com.example.demo.enums.GateReplyStatus;
+import com.example.demo.exceptions.GateBackpressureException;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.services.VehicleService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves the binary gate protocol (see GateFrames) to barrier controllers over persistent TCP
+// connections. Commands call the same VehicleService operations as the HTTP check-in and check-out
+// endpoints, each on its own virtual thread. A server serves the gates of one facility.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "vehicle.gate.protocol.enabled", havingValue = "true")
+public class GateProtocolServer {
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Value("${vehicle.gate.protocol.port:7070}")
+    private int port;
+
+    @Value("${vehicle.gate.protocol.max-in-flight:1024}")
+    private int maxInFlight;
+
+    @Value("${vehicle.gate.protocol.facility:MAIN}")
+    private String facility;
+
+    private final Set<GateConnection> connections = ConcurrentHashMap.newKeySet();
+    private final ExecutorService commandExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private ServerSocket serverSocket;
+
+    @PostConstruct
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+        Thread.ofPlatform().name("gate-protocol-acceptor").daemon().start(this::accept);
+        log.info("Gate protocol listening on port {}", serverSocket.getLocalPort());
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                GateConnection connection = new GateConnection(socket, this::execute, commandExecutor, maxInFlight,
+                        connections::remove);
+                connections.add(connection);
+                connection.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Failed to accept gate connection", e);
+                }
+            }
+        }
+    }
+
+    GateReply execute(GateCommand command) {
+        String licensePlate = command.licensePlate();
+        try {
+            return switch (command.type()) {
+                case CHECK_IN -> {
+                    vehicleService.checkIn(facility, licensePlate);
+                    yield GateReply.of(command, GateReplyStatus.CHECKED_IN);
+                }
+                case CHECK_OUT_RESIDENT -> {
+                    vehicleService.checkOutResident(facility, licensePlate);
+                    yield GateReply.of(command, GateReplyStatus.CHECKED_OUT);
+                }
+                case CHECK_OUT_OFFICIAL -> {
+                    vehicleService.checkOutOfficial(facility, licensePlate);
+                    yield GateReply.of(command, GateReplyStatus.CHECKED_OUT);
+                }
+                case CHECK_OUT_NON_RESIDENT -> new GateReply(command.correlationId(), GateReplyStatus.CHECKED_OUT,
+                        vehicleService.checkOutNonResident(facility, licensePlate));
+            };
+        } catch (ResourceNotFoundException e) {
+            return GateReply.of(command, GateReplyStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            // Not parked, or parked as another vehicle type
+            return GateReply.of(command, GateReplyStatus.NOT_PARKED);
+        } catch (GateBackpressureException e) {
+            return GateReply.of(command, GateReplyStatus.BUSY);
+        } catch (RuntimeException e) {
+            log.error("Gate command {} failed", command, e);
+            return GateReply.of(command, GateReplyStatus.ERROR);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        serverSocket.close();
+        connections.forEach(GateConnection::close);
+        commandExecutor.shutdown();
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.example.demo.protocol;
+
+import com.example.demo.enums.GateReplyStatus;
+
+import java.math.BigDecimal;
+
+public record GateReply(long correlationId, GateReplyStatus status, BigDecimal parkingFee) {
+
+    public static GateReply of(GateCommand command, GateReplyStatus status) {
+        return new GateReply(command.correlationId(), status, null);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.ResidentInvoice;
+import com.example.demo.events.GateEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Function;
+
+// Adds resident stays to the open invoice of their exit month. The first stay of a month finds
+// no invoice to update and creates it instead. Stays whose month is already closed are returned,
+// and can be added to the invoice of a later month with addLateStays.
+@Repository
+public class ResidentInvoiceBatchRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${vehicle.billing.zone:UTC}")
+    private ZoneId billingZone;
+
+    public List<GateEvent> addStays(List<GateEvent> checkOuts) {
+        return addStays(checkOuts, this::billingMonth);
+    }
+
+    public List<GateEvent> addLateStays(List<GateEvent> checkOuts, LocalDate billingMonth) {
+        Date month = Date.valueOf(billingMonth);
+        return addStays(checkOuts, checkOut -> month);
+    }
+
+    private List<GateEvent> addStays(List<GateEvent> checkOuts, Function<GateEvent, Date> billingMonthOf) {
+        int[][] counts = jdbcTemplate.batchUpdate("UPDATE resident_invoice SET accumulated_time = accumulated_time + ? " +
+                        "WHERE resident_vehicle_id = ? AND billing_month = ? AND closed = FALSE",
+                checkOuts, checkOuts.size(), (ps, checkOut) -> {
+                    ps.setLong(1, checkOut.durationOfStay());
+                    ps.setLong(2, checkOut.vehicleId());
+                    ps.setDate(3, billingMonthOf.apply(checkOut));
+                });
+        List<GateEvent> unmatched = VehicleBatchRepository.rejected(checkOuts, counts);
+        if (unmatched.isEmpty()) {
+            return unmatched;
+        }
+
+        counts = jdbcTemplate.batchUpdate("INSERT INTO resident_invoice " +
+                        "(resident_vehicle_id, billing_month, facility, license_plate, accumulated_time, closed) " +
+                        "SELECT v.id, ?, v.facility, v.license_plate, ?, FALSE FROM vehicle v WHERE v.id = ? AND NOT EXISTS " +
+                        "(SELECT 1 FROM resident_invoice i WHERE i.resident_vehicle_id = v.id AND i.billing_month = ?)",
+                unmatched, unmatched.size(), (ps, checkOut) -> {
+                    Date billingMonth = billingMonthOf.apply(checkOut);
+                    ps.setDate(1, billingMonth);
+                    ps.setLong(2, checkOut.durationOfStay());
+                    ps.setLong(3, checkOut.vehicleId());
+                    ps.setDate(4, billingMonth);
+                });
+        return VehicleBatchRepository.rejected(unmatched, counts);
+    }
+
+    private Date billingMonth(GateEvent checkOut) {
+        return Date.valueOf(ResidentInvoice.billingMonth(checkOut.exitTime(), billingZone));
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.ResidentInvoice;
+import com.example.demo.projections.ResidentPayment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ResidentInvoiceRepository extends JpaRepository<ResidentInvoice, ResidentInvoice.Key> {
+    @Query("SELECT new com.example.demo.projections.ResidentPayment(i.licensePlate, i.accumulatedTime, i.fee) " +
+            "FROM ResidentInvoice i WHERE i.facility = :facility AND i.billingMonth = :billingMonth " +
+            "ORDER BY i.licensePlate")
+    List<ResidentPayment> findPayments(@Param("facility") String facility,
+                                       @Param("billingMonth") LocalDate billingMonth);
+
+    @Query("SELECT new com.example.demo.projections.ResidentPayment(i.licensePlate, i.accumulatedTime, i.fee) " +
+            "FROM ResidentInvoice i WHERE i.facility = :facility AND i.billingMonth = :billingMonth " +
+            "AND i.licensePlate > :after ORDER BY i.licensePlate")
+    List<ResidentPayment> findPaymentsAfter(@Param("facility") String facility,
+                                            @Param("billingMonth") LocalDate billingMonth,
+                                            @Param("after") String after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.example.demo.projections.ResidentPayment(i.licensePlate, i.accumulatedTime, i.fee) " +
+            "FROM ResidentInvoice i WHERE i.facility = :facility AND i.billingMonth = :billingMonth " +
+            "ORDER BY i.licensePlate")
+    Stream<ResidentPayment> streamPayments(@Param("facility") String facility,
+                                           @Param("billingMonth") LocalDate billingMonth);
+
+    List<ResidentInvoice> findByFacilityAndClosedFalseAndBillingMonthBefore(String facility, LocalDate billingMonth);
+}
@@ -0,0 +1,73 @@
+package com.example.demo.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public class StayPartitionRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public boolean isPartitioned() {
+        Boolean postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        if (!Boolean.TRUE.equals(postgres)) {
+            return false;
+        }
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_partitioned_table pt " +
+                "JOIN pg_class c ON c.oid = pt.partrelid " +
+                "WHERE c.relname = 'stay' AND c.relnamespace = to_regnamespace(current_schema())", Integer.class);
+        return count != null && count > 0;
+    }
+
+    public List<String> findPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = 'stay' AND p.relnamespace = to_regnamespace(current_schema())", String.class);
+    }
+
+    public List<String> findClosedPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_trigger t " +
+                "JOIN pg_class c ON c.oid = t.tgrelid " +
+                "WHERE t.tgname = 'stay_read_only' AND c.relnamespace = to_regnamespace(current_schema())",
+                String.class);
+    }
+
+    public void createPartition(String name, long fromEpochMs, long toEpochMs) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF stay " +
+                "FOR VALUES FROM (" + fromEpochMs + ") TO (" + toEpochMs + ")");
+    }
+
+    public boolean hasDefaultRows(long fromEpochMs, long toEpochMs) {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM stay_default " +
+                "WHERE exit_time_epoch_ms >= ? AND exit_time_epoch_ms < ?)", Boolean.class, fromEpochMs, toEpochMs);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    // PostgreSQL refuses to create a partition while the default partition holds rows of its range,
+    // so the default is detached, the rows are moved into the new partition and the default is
+    // attached again. The DDL is transactional, and detaching locks stay until the move commits.
+    @Transactional
+    public int createPartitionFromDefault(String name, long fromEpochMs, long toEpochMs) {
+        jdbcTemplate.execute("ALTER TABLE stay DETACH PARTITION stay_default");
+        createPartition(name, fromEpochMs, toEpochMs);
+        String range = " WHERE exit_time_epoch_ms >= " + fromEpochMs + " AND exit_time_epoch_ms < " + toEpochMs;
+        int moved = jdbcTemplate.update("INSERT INTO stay SELECT * FROM stay_default" + range);
+        jdbcTemplate.update("DELETE FROM stay_default" + range);
+        jdbcTemplate.execute("ALTER TABLE stay ATTACH PARTITION stay_default DEFAULT");
+        return moved;
+    }
+
+    public void closePartition(String name) {
+        jdbcTemplate.execute("CREATE OR REPLACE TRIGGER stay_read_only BEFORE INSERT OR UPDATE OR DELETE ON " + name +
+                " FOR EACH ROW EXECUTE FUNCTION reject_stay_write()");
+    }
+
+}
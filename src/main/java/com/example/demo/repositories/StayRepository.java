@@ -1,9 +1,22 @@
 package com.example.demo.repositories;
 
 import com.example.demo.entities.Stay;
+import com.example.demo.projections.OfficialVehicleUsage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
+
 @Repository
 public interface StayRepository extends JpaRepository<Stay, Long> {
+    @Query("SELECT new com.example.demo.projections.OfficialVehicleUsage(v.licensePlate, COUNT(s), " +
+            "SUM(s.durationOfStay), MIN(s.entryTime), MAX(s.entryTime)) " +
+            "FROM Stay s JOIN s.officialVehicle v " +
+            "WHERE s.facility = :facility AND s.entryTime >= :from AND s.entryTime < :to AND s.exitTime >= :from " +
+            "GROUP BY v.id, v.licensePlate ORDER BY v.licensePlate")
+    List<OfficialVehicleUsage> findOfficialVehicleUsage(@Param("facility") String facility,
+                                                        @Param("from") Instant from, @Param("to") Instant to);
 }
@@ -0,0 +1,53 @@
+package com.example.demo.repositories;
+
+import com.example.demo.events.GateEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Each update only applies when the vehicle is in the state the event expects; the events whose
+// statement matched no row are returned as rejected.
+@Repository
+public class VehicleBatchRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<GateEvent> updateEntryTimes(List<GateEvent> checkIns) {
+        int[][] counts = jdbcTemplate.batchUpdate("UPDATE vehicle SET entry_time_epoch_ms = ?, exit_time_epoch_ms = NULL " +
+                        "WHERE id = ? AND entry_time_epoch_ms IS NULL",
+                checkIns, checkIns.size(), (ps, checkIn) -> {
+                    ps.setLong(1, checkIn.entryTime().toEpochMilli());
+                    ps.setLong(2, checkIn.vehicleId());
+                });
+        return rejected(checkIns, counts);
+    }
+
+    public List<GateEvent> clearTimes(List<GateEvent> checkOuts) {
+        int[][] counts = jdbcTemplate.batchUpdate("UPDATE vehicle SET entry_time_epoch_ms = NULL, exit_time_epoch_ms = NULL " +
+                        "WHERE id = ? AND entry_time_epoch_ms = ?",
+                checkOuts, checkOuts.size(), (ps, checkOut) -> {
+                    ps.setLong(1, checkOut.vehicleId());
+                    ps.setLong(2, checkOut.entryTime().toEpochMilli());
+                });
+        return rejected(checkOuts, counts);
+    }
+
+    static List<GateEvent> rejected(List<GateEvent> events, int[][] counts) {
+        List<GateEvent> rejected = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    rejected.add(events.get(index));
+                }
+                index++;
+            }
+        }
+        return rejected;
+    }
+
+}
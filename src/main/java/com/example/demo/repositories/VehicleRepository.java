@@ -3,17 +3,86 @@ package com.example.demo.repositories;
 import com.example.demo.entities.OfficialVehicle;
 import com.example.demo.entities.ResidentVehicle;
 import com.example.demo.entities.Vehicle;
+import com.example.demo.projections.OccupancyCount;
+import com.example.demo.projections.ParkedChecksum;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.projections.RegisteredVehicle;
+import com.example.demo.projections.VehicleSearchResult;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
-    Optional<Vehicle> findByLicensePlate(String licensePlate);
+    Optional<Vehicle> findByPlateKey(String plateKey);
+
+    default Optional<Vehicle> findByLicensePlate(String licensePlate) {
+        return findByPlateKey(Vehicle.plateKey(licensePlate));
+    }
 
     @Query("SELECT v FROM ResidentVehicle v")
     List<ResidentVehicle> findAllResidentVehicle();
+
+    @Query("SELECT new com.example.demo.projections.RegisteredVehicle(v.id, v.plateKey, v.vehicleEnum, v.facility) " +
+            "FROM Vehicle v WHERE v.plateKey = :plateKey")
+    Optional<RegisteredVehicle> findRegisteredVehicle(@Param("plateKey") String plateKey);
+
+    @Query("SELECT new com.example.demo.projections.RegisteredVehicle(v.id, v.plateKey, v.vehicleEnum, v.facility) " +
+            "FROM Vehicle v WHERE v.plateKey IN :plateKeys")
+    List<RegisteredVehicle> findRegisteredVehicles(@Param("plateKeys") Collection<String> plateKeys);
+
+    @Query("SELECT v.plateKey FROM Vehicle v WHERE v.plateKey IN :plateKeys")
+    Set<String> findExistingPlateKeys(@Param("plateKeys") Collection<String> plateKeys);
+
+    @Query("SELECT v.plateKey FROM Vehicle v WHERE v.plateKey > :after ORDER BY v.plateKey")
+    List<String> findPlateKeysAfter(@Param("after") String after, Pageable pageable);
+
+    @Query("SELECT new com.example.demo.projections.VehicleSearchResult(v.plateKey, v.licensePlate, v.vehicleEnum, " +
+            "v.entryTime) FROM Vehicle v WHERE v.facility = :facility AND v.plateKey LIKE :prefix% " +
+            "AND v.plateKey > :after ORDER BY v.plateKey")
+    List<VehicleSearchResult> searchByPlateKeyPrefix(@Param("facility") String facility, @Param("prefix") String prefix,
+                                                     @Param("after") String after, Pageable pageable);
+
+    @Query("SELECT new com.example.demo.projections.ParkedVehicle(v.id, v.plateKey, v.vehicleEnum, v.entryTime, v.facility) " +
+            "FROM Vehicle v WHERE v.entryTime IS NOT NULL")
+    List<ParkedVehicle> findAllParked();
+
+    @Query("SELECT new com.example.demo.projections.ParkedVehicle(v.id, v.plateKey, v.vehicleEnum, v.entryTime, v.facility) " +
+            "FROM Vehicle v WHERE v.facility = :facility AND v.entryTime IS NOT NULL")
+    List<ParkedVehicle> findAllParkedByFacility(@Param("facility") String facility);
+
+    @Query("SELECT new com.example.demo.projections.ParkedVehicle(v.id, v.plateKey, v.vehicleEnum, v.entryTime, v.facility) " +
+            "FROM Vehicle v WHERE v.plateKey = :plateKey AND v.entryTime IS NOT NULL")
+    Optional<ParkedVehicle> findParkedVehicle(@Param("plateKey") String plateKey);
+
+    @Query("SELECT new com.example.demo.projections.OccupancyCount(v.facility, v.vehicleEnum, COUNT(v)) " +
+            "FROM Vehicle v WHERE v.entryTime IS NOT NULL GROUP BY v.facility, v.vehicleEnum")
+    List<OccupancyCount> countParkedByFacilityAndVehicleEnum();
+
+    @Query("SELECT new com.example.demo.projections.ParkedChecksum(v.facility, v.vehicleEnum, COUNT(v), " +
+            "SUM(MOD(v.id * 1000003 + CAST(v.entryTime AS Long), 2147483647))) " +
+            "FROM Vehicle v WHERE v.entryTime IS NOT NULL GROUP BY v.facility, v.vehicleEnum")
+    List<ParkedChecksum> checksumParkedByFacilityAndVehicleEnum();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Vehicle v SET v.entryTime = :entryTime, v.exitTime = null " +
+            "WHERE v.id = :id AND v.entryTime IS NULL")
+    int updateEntryTime(@Param("id") Long id, @Param("entryTime") Instant entryTime);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Vehicle v SET v.entryTime = null, v.exitTime = null " +
+            "WHERE v.id = :id AND v.entryTime = :entryTime")
+    int clearTimes(@Param("id") Long id, @Param("entryTime") Instant entryTime);
 }
@@ -0,0 +1,272 @@
+package com.example.demo.services;
+
+import com.example.demo.enums.GateEventType;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.events.GateEvent;
+import com.example.demo.events.GateJournal;
+import com.example.demo.projections.ParkedChecksum;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.repositories.VehicleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Vehicles currently parked by plate key, mirroring the non-null entry times of the vehicle table.
+// Changes for a plate are made under that plate's lock stripe. With the gate journal enabled, accepted
+// events are journaled as they are applied and startup restores the index from the latest snapshot and
+// the journal tail instead of reading every parked vehicle from the database.
+@Slf4j
+@Component
+public class ActiveStayIndex {
+    private static final int LOCK_STRIPES = 64;
+
+    private final ConcurrentHashMap<String, ParkedVehicle> parkedVehicles = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final ConcurrentHashMap<String, OccupancyCounters> occupancyCounters = new ConcurrentHashMap<>();
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private Clock clock;
+
+    @Autowired(required = false)
+    private GateJournal gateJournal;
+
+    public ActiveStayIndex() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void restore() {
+        if (gateJournal != null) {
+            try {
+                Optional<GateJournal.Recovery> recovery = gateJournal.recover();
+                if (recovery.isPresent()) {
+                    clear();
+                    recovery.get().parkedVehicles().forEach(this::park);
+                    recovery.get().tail().forEach(this::apply);
+                    if (matchesDatabase()) {
+                        log.info("Active stay index restored with {} parked vehicles from the snapshot at {} and {} journaled events",
+                                parkedVehicles.size(), recovery.get().sequence(), recovery.get().tail().size());
+                        return;
+                    }
+                    log.warn("Journaled parked vehicles do not match the database, rebuilding from the database");
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to restore the active stay index from the gate journal, rebuilding from the database", e);
+            }
+        }
+        rebuild();
+    }
+
+    public void rebuild() {
+        clear();
+        for (ParkedVehicle parkedVehicle : vehicleRepository.findAllParked()) {
+            park(parkedVehicle);
+        }
+        log.info("Active stay index rebuilt with {} parked vehicles", parkedVehicles.size());
+        snapshot();
+    }
+
+    // Snapshots the index as of the last journaled event, holding every stripe only while copying it
+    @Scheduled(fixedDelayString = "${vehicle.journal.snapshot-interval-ms:60000}",
+            initialDelayString = "${vehicle.journal.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        if (gateJournal == null) {
+            return;
+        }
+        long sequence;
+        List<ParkedVehicle> copy;
+        lockAll();
+        try {
+            sequence = gateJournal.lastSequence();
+            copy = new ArrayList<>(parkedVehicles.values());
+        } finally {
+            unlockAll();
+        }
+        try {
+            gateJournal.snapshot(sequence, copy);
+        } catch (IOException e) {
+            log.error("Failed to write the active stay snapshot at {}", sequence, e);
+        }
+    }
+
+    public <T> T withLock(String licensePlate, Supplier<T> action) {
+        ReentrantLock lock = lockFor(licensePlate);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void withLock(String licensePlate, Runnable action) {
+        withLock(licensePlate, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T withLocks(Collection<String> licensePlates, Supplier<T> action) {
+        int[] stripes = licensePlates.stream().mapToInt(this::stripeFor).distinct().sorted().toArray();
+        for (int i = 0; i < stripes.length; i++) {
+            locks[stripes[i]].lock();
+        }
+        try {
+            return action.get();
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    public Optional<ParkedVehicle> find(String licensePlate) {
+        return Optional.ofNullable(parkedVehicles.get(licensePlate));
+    }
+
+    public boolean isParked(String licensePlate) {
+        return parkedVehicles.containsKey(licensePlate);
+    }
+
+    public void park(ParkedVehicle parkedVehicle) {
+        ParkedVehicle previous = parkedVehicles.put(parkedVehicle.licensePlate(), parkedVehicle);
+        if (previous != null) {
+            countersFor(previous.facility()).leave(previous.vehicleEnum());
+        }
+        countersFor(parkedVehicle.facility()).park(parkedVehicle.vehicleEnum());
+    }
+
+    public void leave(String licensePlate) {
+        ParkedVehicle previous = parkedVehicles.remove(licensePlate);
+        if (previous != null) {
+            countersFor(previous.facility()).leave(previous.vehicleEnum());
+        }
+    }
+
+    // Journals accepted gate events and applies them; the caller holds the stripes of their plates
+    public void record(List<GateEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (gateJournal != null) {
+            try {
+                gateJournal.append(events);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to journal {} gate events", events.size(), e);
+            }
+        }
+        events.forEach(this::apply);
+    }
+
+    public void refresh(String licensePlate) {
+        Optional<ParkedVehicle> parkedVehicle = vehicleRepository.findParkedVehicle(licensePlate);
+        Optional<ParkedVehicle> previous = find(licensePlate);
+        if (parkedVehicle.isPresent() && !parkedVehicle.equals(previous)) {
+            record(List.of(GateEvent.checkIn(parkedVehicle.get())));
+        } else if (parkedVehicle.isEmpty() && previous.isPresent()) {
+            record(List.of(GateEvent.checkOut(previous.get(), Instant.ofEpochMilli(clock.millis()))));
+        }
+    }
+
+    public int size() {
+        return parkedVehicles.size();
+    }
+
+    public List<ParkedVehicle> parkedAt(String facility) {
+        return parkedVehicles.values().stream()
+                .filter(parkedVehicle -> parkedVehicle.facility().equals(facility))
+                .toList();
+    }
+
+    // Sets a facility's counters from its entries, holding every stripe so no plate changes meanwhile
+    public void recount(String facility) {
+        lockAll();
+        try {
+            OccupancyCounters counters = countersFor(facility);
+            counters.reset();
+            parkedAt(facility).forEach(parkedVehicle -> counters.park(parkedVehicle.vehicleEnum()));
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Facilities nobody parked at since startup read as empty without being added
+    public OccupancyCounters occupancy(String facility) {
+        OccupancyCounters counters = occupancyCounters.get(facility);
+        return counters != null ? counters : new OccupancyCounters();
+    }
+
+    public Set<String> facilities() {
+        return Collections.unmodifiableSet(occupancyCounters.keySet());
+    }
+
+    public void clear() {
+        parkedVehicles.clear();
+        occupancyCounters.clear();
+    }
+
+    OccupancyCounters countersFor(String facility) {
+        return occupancyCounters.computeIfAbsent(facility, key -> new OccupancyCounters());
+    }
+
+    private void apply(GateEvent event) {
+        if (event.type() == GateEventType.CHECK_IN) {
+            park(event.parkedVehicle());
+        } else {
+            leave(event.licensePlate());
+        }
+    }
+
+    // Compares which vehicle entered when, not only how many are parked, so a lost check-in hidden by
+    // a phantom one of the same type does not pass
+    private boolean matchesDatabase() {
+        Set<ParkedChecksum> inDatabase = new HashSet<>(vehicleRepository.checksumParkedByFacilityAndVehicleEnum());
+        Map<String, Map<VehicleEnum, long[]>> inIndex = new HashMap<>();
+        for (ParkedVehicle parkedVehicle : parkedVehicles.values()) {
+            long[] checksum = inIndex.computeIfAbsent(parkedVehicle.facility(), facility -> new EnumMap<>(VehicleEnum.class))
+                    .computeIfAbsent(parkedVehicle.vehicleEnum(), vehicleEnum -> new long[2]);
+            checksum[0]++;
+            checksum[1] += ParkedChecksum.term(parkedVehicle.vehicleId(), parkedVehicle.entryTime());
+        }
+        Set<ParkedChecksum> indexed = new HashSet<>();
+        inIndex.forEach((facility, checksums) -> checksums.forEach((vehicleEnum, checksum) ->
+                indexed.add(new ParkedChecksum(facility, vehicleEnum, checksum[0], checksum[1]))));
+        return indexed.equals(inDatabase);
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String licensePlate) {
+        return locks[stripeFor(licensePlate)];
+    }
+
+    private int stripeFor(String licensePlate) {
+        return (licensePlate.hashCode() & 0x7fffffff) % LOCK_STRIPES;
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.example.demo.services;
+
+import com.example.demo.events.GateEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "vehicle.gate.write-behind.enabled", havingValue = "false", matchIfMissing = true)
+public class DirectGateEventWriter implements GateEventWriter {
+
+    @Autowired
+    private GateEventStore gateEventStore;
+
+    @Override
+    public List<GateEvent> write(List<GateEvent> events) {
+        if (events.isEmpty()) {
+            return List.of();
+        }
+        return gateEventStore.apply(events);
+    }
+
+    @Override
+    public boolean flush(long timeoutMs) {
+        return true;
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.example.demo.services;
+
+import com.example.demo.dtos.GateEventResultDTO;
+import com.example.demo.entities.NonResidentVehicle;
+import com.example.demo.entities.Vehicle;
+import com.example.demo.enums.GateEventStatus;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.events.GateEvent;
+import com.example.demo.metrics.OperationMetrics;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.projections.RegisteredVehicle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+public class GateBatchService {
+
+    @Autowired
+    private VehicleRegistry vehicleRegistry;
+
+    @Autowired
+    private ActiveStayIndex activeStayIndex;
+
+    @Autowired
+    private Clock clock;
+
+    @Autowired
+    private GateEventWriter gateEventWriter;
+
+    @Autowired
+    private OperationMetrics operationMetrics;
+
+    public List<GateEventResultDTO> checkIn(String facility, List<String> licensePlates) {
+        String facilityKey = Vehicle.facilityKey(facility);
+        List<String> plateKeys = plateKeys(licensePlates);
+        return operationMetrics.record("checkInBatch", () -> activeStayIndex.withLocks(plateKeys, () -> {
+            Instant entryTime = Instant.ofEpochMilli(clock.millis());
+            Map<String, RegisteredVehicle> registeredVehicles = findRegisteredVehicles(facilityKey, plateKeys);
+
+            List<GateEventResultDTO> results = new ArrayList<>(licensePlates.size());
+            Map<String, GateEventResultDTO> accepted = new HashMap<>();
+            Map<String, ParkedVehicle> parkedVehicles = new LinkedHashMap<>();
+            for (int i = 0; i < licensePlates.size(); i++) {
+                String licensePlate = licensePlates.get(i);
+                String plateKey = plateKeys.get(i);
+                RegisteredVehicle registeredVehicle = registeredVehicles.get(plateKey);
+                if (findParkedVehicle(facilityKey, plateKey).isPresent() || parkedVehicles.containsKey(plateKey)) {
+                    results.add(result(licensePlate, GateEventStatus.ALREADY_PARKED, null));
+                } else if (registeredVehicle == null) {
+                    results.add(result(licensePlate, GateEventStatus.NOT_FOUND, null));
+                } else {
+                    parkedVehicles.put(plateKey, new ParkedVehicle(registeredVehicle.vehicleId(),
+                            plateKey, registeredVehicle.vehicleEnum(), entryTime, facilityKey));
+                    GateEventResultDTO result = result(licensePlate, GateEventStatus.CHECKED_IN,
+                            registeredVehicle.vehicleEnum());
+                    accepted.put(plateKey, result);
+                    results.add(result);
+                }
+            }
+
+            List<GateEvent> rejected = gateEventWriter.write(parkedVehicles.values().stream()
+                    .map(GateEvent::checkIn)
+                    .collect(Collectors.toList()));
+            for (GateEvent event : rejected) {
+                reject(accepted.get(event.licensePlate()), GateEventStatus.ALREADY_PARKED);
+                parkedVehicles.remove(event.licensePlate());
+                activeStayIndex.refresh(event.licensePlate());
+            }
+            activeStayIndex.record(parkedVehicles.values().stream().map(GateEvent::checkIn).toList());
+            countVehicles("checkInBatch", parkedVehicles.values().stream().map(ParkedVehicle::vehicleEnum));
+            return results;
+        }));
+    }
+
+    public List<GateEventResultDTO> checkOut(String facility, List<String> licensePlates) {
+        String facilityKey = Vehicle.facilityKey(facility);
+        List<String> plateKeys = plateKeys(licensePlates);
+        return operationMetrics.record("checkOutBatch", () -> activeStayIndex.withLocks(plateKeys, () -> {
+            Instant exitTime = Instant.ofEpochMilli(clock.millis());
+            Map<String, RegisteredVehicle> registeredVehicles = findRegisteredVehicles(facilityKey, plateKeys);
+
+            List<GateEventResultDTO> results = new ArrayList<>(licensePlates.size());
+            Map<String, GateEventResultDTO> accepted = new HashMap<>();
+            Map<String, GateEvent> checkOuts = new LinkedHashMap<>();
+            for (int i = 0; i < licensePlates.size(); i++) {
+                String licensePlate = licensePlates.get(i);
+                String plateKey = plateKeys.get(i);
+                Optional<ParkedVehicle> parkedVehicle = findParkedVehicle(facilityKey, plateKey);
+                if (checkOuts.containsKey(plateKey)) {
+                    results.add(result(licensePlate, GateEventStatus.NOT_PARKED, null));
+                } else if (parkedVehicle.isEmpty()) {
+                    results.add(result(licensePlate, registeredVehicles.containsKey(plateKey)
+                            ? GateEventStatus.NOT_PARKED : GateEventStatus.NOT_FOUND, null));
+                } else {
+                    GateEvent checkOut = GateEvent.checkOut(parkedVehicle.get(), exitTime);
+                    checkOuts.put(plateKey, checkOut);
+                    GateEventResultDTO result = result(licensePlate, GateEventStatus.CHECKED_OUT,
+                            checkOut.vehicleEnum());
+                    if (checkOut.vehicleEnum() == VehicleEnum.NON_RESIDENT) {
+                        result.setParkingFee(NonResidentVehicle.calculateParkingFee(checkOut.durationOfStay()));
+                    }
+                    accepted.put(plateKey, result);
+                    results.add(result);
+                }
+            }
+
+            List<GateEvent> rejected = gateEventWriter.write(new ArrayList<>(checkOuts.values()));
+            for (GateEvent event : rejected) {
+                reject(accepted.get(event.licensePlate()), GateEventStatus.NOT_PARKED);
+                checkOuts.remove(event.licensePlate());
+                activeStayIndex.refresh(event.licensePlate());
+            }
+            activeStayIndex.record(new ArrayList<>(checkOuts.values()));
+            countVehicles("checkOutBatch", checkOuts.values().stream().map(GateEvent::vehicleEnum));
+            return results;
+        }));
+    }
+
+    private void countVehicles(String operation, Stream<VehicleEnum> vehicleEnums) {
+        vehicleEnums.collect(Collectors.groupingBy(vehicleEnum -> vehicleEnum, Collectors.counting()))
+                .forEach((vehicleEnum, count) -> operationMetrics.vehicles(operation, vehicleEnum, count));
+    }
+
+    private static List<String> plateKeys(List<String> licensePlates) {
+        return licensePlates.stream().map(Vehicle::plateKey).toList();
+    }
+
+    private Optional<ParkedVehicle> findParkedVehicle(String facility, String plateKey) {
+        return activeStayIndex.find(plateKey).filter(parkedVehicle -> parkedVehicle.facility().equals(facility));
+    }
+
+    // Vehicles registered at another facility are left out, so they are reported as not found
+    private Map<String, RegisteredVehicle> findRegisteredVehicles(String facility, List<String> plateKeys) {
+        Set<String> unparked = plateKeys.stream()
+                .filter(plateKey -> !activeStayIndex.isParked(plateKey))
+                .collect(Collectors.toSet());
+        if (unparked.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, RegisteredVehicle> registeredVehicles = new HashMap<>(vehicleRegistry.findAllByPlateKey(unparked));
+        registeredVehicles.values().removeIf(registeredVehicle -> !registeredVehicle.facility().equals(facility));
+        return registeredVehicles;
+    }
+
+    private static void reject(GateEventResultDTO result, GateEventStatus status) {
+        result.setStatus(status);
+        result.setVehicleEnum(null);
+        result.setParkingFee(null);
+    }
+
+    private static GateEventResultDTO result(String licensePlate, GateEventStatus status, VehicleEnum vehicleEnum) {
+        return GateEventResultDTO.builder()
+                .licensePlate(licensePlate)
+                .status(status)
+                .vehicleEnum(vehicleEnum)
+                .build();
+    }
+
+}
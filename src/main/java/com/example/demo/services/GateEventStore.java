@@ -0,0 +1,167 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.OfficialVehicle;
+import com.example.demo.entities.ResidentInvoice;
+import com.example.demo.entities.Stay;
+import com.example.demo.enums.GateEventType;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.events.GateEvent;
+import com.example.demo.metrics.OperationMetrics;
+import com.example.demo.repositories.ResidentInvoiceBatchRepository;
+import com.example.demo.repositories.StayRepository;
+import com.example.demo.repositories.VehicleBatchRepository;
+import com.example.demo.repositories.VehicleRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+// Applies gate events to the vehicle and stay tables. A list of events is written in one
+// transaction; it is cut into segments where a plate repeats so each segment can be
+// grouped into JDBC batches without reordering the events of a plate. Every update is
+// conditional on the vehicle's current state, and the events that matched nothing are
+// returned as rejected, so duplicate or replayed events never apply twice. Accepted resident
+// check-outs are billed to the resident's invoice in the same transaction; a stay whose exit month
+// was closed in the meantime is billed to the invoice of the current month instead.
+@Slf4j
+@Component
+public class GateEventStore {
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private VehicleBatchRepository vehicleBatchRepository;
+
+    @Autowired
+    private ResidentInvoiceBatchRepository residentInvoiceBatchRepository;
+
+    @Autowired
+    private StayRepository stayRepository;
+
+    @Autowired
+    private OperationMetrics operationMetrics;
+
+    @Autowired
+    private Clock clock;
+
+    @Value("${vehicle.billing.zone:UTC}")
+    private ZoneId billingZone;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional
+    public List<GateEvent> apply(List<GateEvent> events) {
+        return operationMetrics.record("applyGateEvents", () -> applyEvents(events));
+    }
+
+    private List<GateEvent> applyEvents(List<GateEvent> events) {
+        if (events.size() == 1) {
+            return apply(events.get(0)) ? List.of() : List.of(events.get(0));
+        }
+        List<GateEvent> rejected = new ArrayList<>();
+        Set<String> segmentPlates = new HashSet<>();
+        List<GateEvent> segment = new ArrayList<>();
+        for (GateEvent event : events) {
+            if (!segmentPlates.add(event.licensePlate())) {
+                rejected.addAll(applySegment(segment));
+                segment.clear();
+                segmentPlates.clear();
+                segmentPlates.add(event.licensePlate());
+            }
+            segment.add(event);
+        }
+        rejected.addAll(applySegment(segment));
+        return rejected;
+    }
+
+    private boolean apply(GateEvent event) {
+        if (event.type() == GateEventType.CHECK_IN) {
+            return vehicleRepository.updateEntryTime(event.vehicleId(), event.entryTime()) > 0;
+        }
+        if (vehicleRepository.clearTimes(event.vehicleId(), event.entryTime()) == 0) {
+            return false;
+        }
+        if (event.vehicleEnum() == VehicleEnum.RESIDENT) {
+            bill(List.of(event));
+        } else if (event.vehicleEnum() == VehicleEnum.OFFICIAL) {
+            stayRepository.save(toStay(event));
+        }
+        return true;
+    }
+
+    private List<GateEvent> applySegment(List<GateEvent> segment) {
+        List<GateEvent> checkIns = new ArrayList<>();
+        List<GateEvent> checkOuts = new ArrayList<>();
+        for (GateEvent event : segment) {
+            if (event.type() == GateEventType.CHECK_IN) {
+                checkIns.add(event);
+            } else {
+                checkOuts.add(event);
+            }
+        }
+
+        List<GateEvent> rejected = new ArrayList<>();
+        if (!checkIns.isEmpty()) {
+            rejected.addAll(vehicleBatchRepository.updateEntryTimes(checkIns));
+        }
+        if (!checkOuts.isEmpty()) {
+            Set<GateEvent> rejectedCheckOuts = new HashSet<>(vehicleBatchRepository.clearTimes(checkOuts));
+            rejected.addAll(rejectedCheckOuts);
+            List<GateEvent> residentCheckOuts = accepted(checkOuts, rejectedCheckOuts, VehicleEnum.RESIDENT);
+            if (!residentCheckOuts.isEmpty()) {
+                bill(residentCheckOuts);
+            }
+            List<Stay> stays = accepted(checkOuts, rejectedCheckOuts, VehicleEnum.OFFICIAL).stream()
+                    .map(this::toStay)
+                    .toList();
+            if (!stays.isEmpty()) {
+                stayRepository.saveAll(stays);
+                stayRepository.flush();
+            }
+        }
+        return rejected;
+    }
+
+    private static List<GateEvent> accepted(List<GateEvent> checkOuts, Set<GateEvent> rejected, VehicleEnum vehicleEnum) {
+        return checkOuts.stream()
+                .filter(event -> event.vehicleEnum() == vehicleEnum && !rejected.contains(event))
+                .toList();
+    }
+
+    // The check-out itself stands even when no open invoice takes the stay; it is then only left unbilled
+    private void bill(List<GateEvent> residentCheckOuts) {
+        List<GateEvent> late = residentInvoiceBatchRepository.addStays(residentCheckOuts);
+        if (late.isEmpty()) {
+            return;
+        }
+        LocalDate currentMonth = ResidentInvoice.billingMonth(Instant.ofEpochMilli(clock.millis()), billingZone);
+        List<GateEvent> unbilled = residentInvoiceBatchRepository.addLateStays(late, currentMonth);
+        int billed = late.size() - unbilled.size();
+        operationMetrics.lateResidentStays("billed", billed);
+        operationMetrics.lateResidentStays("unbilled", unbilled.size());
+        if (billed > 0) {
+            log.warn("{} resident stays ended in a closed billing month and were billed to {}", billed, currentMonth);
+        }
+        if (!unbilled.isEmpty()) {
+            log.error("{} resident stays ended in a closed billing month and could not be billed: {}",
+                    unbilled.size(), unbilled);
+        }
+    }
+
+    private Stay toStay(GateEvent event) {
+        return Stay.of(entityManager.getReference(OfficialVehicle.class, event.vehicleId()),
+                event.facility(), event.entryTime(), event.exitTime());
+    }
+
+}
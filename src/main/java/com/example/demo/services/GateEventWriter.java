@@ -0,0 +1,18 @@
+package com.example.demo.services;
+
+import com.example.demo.events.GateEvent;
+
+import java.util.List;
+
+public interface GateEventWriter {
+    // Returns the events the database rejected because the vehicle was not in the expected
+    // state. Writers that apply events later return an empty list.
+    List<GateEvent> write(List<GateEvent> events);
+
+    default void flush() {
+        flush(Long.MAX_VALUE);
+    }
+
+    // Waits until the events written so far are in the database; false when that took longer than timeoutMs
+    boolean flush(long timeoutMs);
+}
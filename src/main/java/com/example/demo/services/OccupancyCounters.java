@@ -0,0 +1,52 @@
+package com.example.demo.services;
+
+import com.example.demo.dtos.OccupancyDTO;
+import com.example.demo.enums.VehicleEnum;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Parked vehicles per type, kept by ActiveStayIndex as vehicles park and leave. LongAdder cells
+// spread concurrent gate updates so they do not contend on one counter.
+public class OccupancyCounters {
+    private final EnumMap<VehicleEnum, LongAdder> parked = new EnumMap<>(VehicleEnum.class);
+
+    public OccupancyCounters() {
+        for (VehicleEnum vehicleEnum : VehicleEnum.values()) {
+            parked.put(vehicleEnum, new LongAdder());
+        }
+    }
+
+    public void park(VehicleEnum vehicleEnum) {
+        parked.get(vehicleEnum).increment();
+    }
+
+    public void leave(VehicleEnum vehicleEnum) {
+        parked.get(vehicleEnum).decrement();
+    }
+
+    public void reset() {
+        parked.values().forEach(LongAdder::reset);
+    }
+
+    public long get(VehicleEnum vehicleEnum) {
+        return parked.get(vehicleEnum).sum();
+    }
+
+    public OccupancyDTO snapshot(String facility) {
+        Map<VehicleEnum, Long> counts = new EnumMap<>(VehicleEnum.class);
+        long total = 0;
+        for (Map.Entry<VehicleEnum, LongAdder> entry : parked.entrySet()) {
+            long count = entry.getValue().sum();
+            counts.put(entry.getKey(), count);
+            total += count;
+        }
+        return OccupancyDTO.builder()
+                .facility(facility)
+                .parked(counts)
+                .total(total)
+                .build();
+    }
+
+}
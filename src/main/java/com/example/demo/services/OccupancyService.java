@@ -0,0 +1,226 @@
+package com.example.demo.services;
+
+import com.example.demo.dtos.OccupancyDTO;
+import com.example.demo.entities.Vehicle;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.projections.OccupancyCount;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.repositories.VehicleRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Serves parked counts per facility from memory. Subscribers get at most one event per push interval, and
+// only when the counts of their facility changed; the event is serialised once and written to every
+// subscriber of the facility. Writes run off the scheduler thread, one at a time per subscriber, so a slow
+// client only delays its own events; a subscriber still writing an earlier event skips the newer one and is
+// dropped once that write has taken longer than the send timeout.
+@Slf4j
+@Service
+public class OccupancyService {
+
+    @Autowired
+    private ActiveStayIndex activeStayIndex;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private GateEventWriter gateEventWriter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${vehicle.occupancy.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${vehicle.occupancy.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${vehicle.occupancy.flush-timeout-ms:5000}")
+    private long flushTimeoutMs;
+
+    // Platform threads, since a send holds the emitter's monitor and would pin a virtual thread's carrier
+    private final ExecutorService sendExecutor = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("occupancy-push-", 0).daemon().factory());
+    private final ConcurrentHashMap<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, OccupancyDTO> lastPushed = new ConcurrentHashMap<>();
+    private Map<String, Map<VehicleEnum, Long>> lastDrift = Map.of();
+
+    public OccupancyDTO occupancy(String facility) {
+        String facilityKey = Vehicle.facilityKey(facility);
+        return activeStayIndex.occupancy(facilityKey).snapshot(facilityKey);
+    }
+
+    public SseEmitter subscribe(String facility) {
+        String facilityKey = Vehicle.facilityKey(facility);
+        List<Subscriber> facilitySubscribers = subscribers.computeIfAbsent(facilityKey, key -> new CopyOnWriteArrayList<>());
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> facilitySubscribers.remove(subscriber));
+        emitter.onTimeout(() -> facilitySubscribers.remove(subscriber));
+        emitter.onError(e -> facilitySubscribers.remove(subscriber));
+        try {
+            emitter.send(event(toJson(occupancy(facilityKey))));
+            facilitySubscribers.add(subscriber);
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public int subscribers() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${vehicle.occupancy.push-interval-ms:1000}")
+    public void push() throws JsonProcessingException {
+        for (Map.Entry<String, List<Subscriber>> entry : subscribers.entrySet()) {
+            List<Subscriber> facilitySubscribers = entry.getValue();
+            OccupancyDTO occupancy = occupancy(entry.getKey());
+            if (facilitySubscribers.isEmpty() || occupancy.equals(lastPushed.get(entry.getKey()))) {
+                continue;
+            }
+            lastPushed.put(entry.getKey(), occupancy);
+            String json = toJson(occupancy);
+            for (Subscriber subscriber : facilitySubscribers) {
+                send(facilitySubscribers, subscriber, json);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        sendExecutor.shutdownNow();
+    }
+
+    // A difference is only corrected when the next run sees the same one, so stays still
+    // in flight between the index and the database are not mistaken for drift. The correction
+    // fixes the index entries, and the counters are recounted from them. A run is skipped while
+    // the database lags behind the gates by more than the flush timeout.
+    @Scheduled(fixedDelayString = "${vehicle.occupancy.reconcile-interval-ms:60000}",
+            initialDelayString = "${vehicle.occupancy.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (!gateEventWriter.flush(flushTimeoutMs)) {
+            log.warn("Gate events are not written to the database within {} ms, skipping occupancy reconciliation",
+                    flushTimeoutMs);
+            return;
+        }
+        Map<String, Map<VehicleEnum, Long>> parked = new HashMap<>();
+        for (OccupancyCount occupancyCount : vehicleRepository.countParkedByFacilityAndVehicleEnum()) {
+            parked.computeIfAbsent(occupancyCount.facility(), facility -> new EnumMap<>(VehicleEnum.class))
+                    .put(occupancyCount.vehicleEnum(), occupancyCount.parked());
+        }
+        Set<String> facilities = new HashSet<>(parked.keySet());
+        facilities.addAll(activeStayIndex.facilities());
+
+        Map<String, Map<VehicleEnum, Long>> drift = new HashMap<>();
+        for (String facility : facilities) {
+            OccupancyCounters counters = activeStayIndex.occupancy(facility);
+            Map<VehicleEnum, Long> facilityParked = parked.getOrDefault(facility, Map.of());
+            Map<VehicleEnum, Long> facilityDrift = new EnumMap<>(VehicleEnum.class);
+            for (VehicleEnum vehicleEnum : VehicleEnum.values()) {
+                long difference = facilityParked.getOrDefault(vehicleEnum, 0L) - counters.get(vehicleEnum);
+                if (difference != 0) {
+                    facilityDrift.put(vehicleEnum, difference);
+                }
+            }
+            if (facilityDrift.isEmpty()) {
+                continue;
+            }
+            if (facilityDrift.equals(lastDrift.get(facility))) {
+                log.warn("Occupancy counters of {} drifted from the database by {}, resyncing", facility, facilityDrift);
+                resync(facility);
+            } else {
+                drift.put(facility, facilityDrift);
+            }
+        }
+        lastDrift = drift;
+    }
+
+    // Refreshes each plate whose parked state differs from the database, so later check-ins and check-outs
+    // of those plates count from the right state. The index is read before the writer catches up, so a plate
+    // whose entry is unchanged under its stripe has no event the database is still missing; plates a gate
+    // event changed meanwhile are left to the next run.
+    private void resync(String facility) {
+        Map<String, ParkedVehicle> inIndex = new HashMap<>();
+        activeStayIndex.parkedAt(facility).forEach(parkedVehicle -> inIndex.put(parkedVehicle.licensePlate(), parkedVehicle));
+        if (!gateEventWriter.flush(flushTimeoutMs)) {
+            log.warn("Gate events are not written to the database within {} ms, postponing the resync of {}",
+                    flushTimeoutMs, facility);
+            return;
+        }
+        Map<String, ParkedVehicle> inDatabase = new HashMap<>();
+        for (ParkedVehicle parkedVehicle : vehicleRepository.findAllParkedByFacility(facility)) {
+            inDatabase.put(parkedVehicle.licensePlate(), parkedVehicle);
+        }
+        Set<String> plateKeys = new HashSet<>(inDatabase.keySet());
+        plateKeys.addAll(inIndex.keySet());
+        for (String plateKey : plateKeys) {
+            Optional<ParkedVehicle> indexed = Optional.ofNullable(inIndex.get(plateKey));
+            if (!indexed.equals(Optional.ofNullable(inDatabase.get(plateKey)))) {
+                activeStayIndex.withLock(plateKey, () -> {
+                    if (activeStayIndex.find(plateKey).equals(indexed)) {
+                        activeStayIndex.refresh(plateKey);
+                    }
+                });
+            }
+        }
+        activeStayIndex.recount(facility);
+    }
+
+    private void send(List<Subscriber> facilitySubscribers, Subscriber subscriber, String json) {
+        if (!subscriber.sending.compareAndSet(false, true)) {
+            if (System.nanoTime() - subscriber.sendStartedNanos > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs)
+                    && facilitySubscribers.remove(subscriber)) {
+                log.warn("Dropping an occupancy subscriber of {} ms without a completed send", sendTimeoutMs);
+                sendExecutor.execute(subscriber.emitter::complete);
+            }
+            return;
+        }
+        subscriber.sendStartedNanos = System.nanoTime();
+        sendExecutor.execute(() -> {
+            try {
+                subscriber.emitter.send(event(json));
+            } catch (IOException | IllegalStateException e) {
+                facilitySubscribers.remove(subscriber);
+            } finally {
+                subscriber.sending.set(false);
+            }
+        });
+    }
+
+    private static SseEmitter.SseEventBuilder event(String json) {
+        return SseEmitter.event().name("occupancy").data(json);
+    }
+
+    private String toJson(OccupancyDTO occupancy) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(occupancy);
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long sendStartedNanos;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+}
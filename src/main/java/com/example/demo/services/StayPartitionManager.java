@@ -0,0 +1,110 @@
+package com.example.demo.services;
+
+import com.example.demo.repositories.StayPartitionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Keeps the stay table partitioned by month of exit time. The current and next month are always
+// writable; months before the previous one are closed with a trigger that rejects writes, so late
+// checkouts around the rollover still land. Rotates on startup and daily, so next month's partition
+// exists well before the first checkout needs it. Stays that already landed in stay_default for a new
+// month are moved into its partition. A month that cannot be created is logged and retried on the next
+// rotation instead of failing startup. Does nothing when stay is not a partitioned table.
+@Slf4j
+@Component
+public class StayPartitionManager {
+
+    @Autowired
+    private StayPartitionRepository stayPartitionRepository;
+
+    @Autowired
+    private Clock clock;
+
+    @Value("${vehicle.stay.partition-zone:UTC}")
+    private ZoneId partitionZone;
+
+    @PostConstruct
+    public void ensurePartitions() {
+        rotate();
+    }
+
+    @Scheduled(cron = "${vehicle.stay.partition-rotate-cron:0 0 1 * * *}", zone = "${vehicle.stay.partition-zone:UTC}")
+    public void rotateDaily() {
+        rotate();
+    }
+
+    public StayPartitionRotation rotate() {
+        if (!stayPartitionRepository.isPartitioned()) {
+            log.warn("Table stay is not partitioned, skipping partition rotation");
+            return new StayPartitionRotation(List.of(), List.of());
+        }
+        YearMonth currentMonth = YearMonth.from(Instant.ofEpochMilli(clock.millis()).atZone(partitionZone));
+        Set<String> partitions = new HashSet<>(stayPartitionRepository.findPartitions());
+
+        List<String> created = new ArrayList<>();
+        for (YearMonth month : List.of(currentMonth, currentMonth.plusMonths(1))) {
+            String name = partitionName(month);
+            if (!partitions.contains(name) && createPartition(name, month)) {
+                created.add(name);
+            }
+        }
+
+        Set<String> closedPartitions = new HashSet<>(stayPartitionRepository.findClosedPartitions());
+        String oldestWritable = partitionName(currentMonth.minusMonths(1));
+        List<String> closed = new ArrayList<>();
+        partitions.stream()
+                .filter(name -> name.startsWith("stay_y") && name.compareTo(oldestWritable) < 0)
+                .filter(name -> !closedPartitions.contains(name))
+                .sorted()
+                .forEach(name -> {
+                    stayPartitionRepository.closePartition(name);
+                    closed.add(name);
+                });
+
+        log.info("Stay partitions rotated: created {}, closed {}", created, closed);
+        return new StayPartitionRotation(created, closed);
+    }
+
+    private boolean createPartition(String name, YearMonth month) {
+        long from = startOf(month);
+        long to = startOf(month.plusMonths(1));
+        try {
+            if (stayPartitionRepository.hasDefaultRows(from, to)) {
+                int moved = stayPartitionRepository.createPartitionFromDefault(name, from, to);
+                log.warn("Moved {} stays from stay_default into new partition {}", moved, name);
+            } else {
+                stayPartitionRepository.createPartition(name, from, to);
+            }
+            return true;
+        } catch (DataAccessException e) {
+            log.error("Could not create stay partition {}, stays of {} stay in stay_default", name, month, e);
+            return false;
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("stay_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+
+    private long startOf(YearMonth month) {
+        return month.atDay(1).atStartOfDay(partitionZone).toInstant().toEpochMilli();
+    }
+
+    public record StayPartitionRotation(List<String> created, List<String> closed) {
+    }
+
+}
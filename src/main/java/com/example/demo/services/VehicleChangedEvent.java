@@ -0,0 +1,5 @@
+package com.example.demo.services;
+
+// Published for every persisted, updated or removed Vehicle so the registry can follow it after commit
+public record VehicleChangedEvent(String plateKey, boolean registered) {
+}
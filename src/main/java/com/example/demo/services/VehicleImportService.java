@@ -0,0 +1,216 @@
+package com.example.demo.services;
+
+import com.example.demo.dtos.VehicleDTO;
+import com.example.demo.dtos.VehicleImportDTO;
+import com.example.demo.entities.Vehicle;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.metrics.OperationMetrics;
+import com.example.demo.repositories.VehicleRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Registers vehicles from a streamed upload. Rows are validated and de-duplicated as they are read,
+// then checked against existing plates and inserted one chunk at a time, so memory is bounded by the
+// chunk size plus the set of plates already seen in the upload. Each chunk is its own transaction and
+// is detached before it commits, so an open request persistence context does not keep it either.
+@Slf4j
+@Service
+public class VehicleImportService {
+    private static final String CSV_HEADER = "licensePlate,vehicleEnum";
+    private static final String CSV_HEADER_WITH_FACILITY = CSV_HEADER + ",facility";
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OperationMetrics operationMetrics;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${vehicle.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${vehicle.import.max-errors:1000}")
+    private int maxErrors;
+
+    public VehicleImportDTO importCsv(InputStream input) {
+        return operationMetrics.record("importCsv", () -> importRows(input, this::parseCsv));
+    }
+
+    public VehicleImportDTO importNdjson(InputStream input) {
+        return operationMetrics.record("importNdjson", () -> importRows(input, this::parseNdjson));
+    }
+
+    private VehicleImportDTO importRows(InputStream input, RowParser parser) {
+        VehicleImportDTO report = new VehicleImportDTO(maxErrors);
+        Set<String> seen = new HashSet<>();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long line = 0;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                VehicleDTO vehicleDTO;
+                try {
+                    vehicleDTO = parser.parse(line, text.trim());
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    report.reject(line, null, "Malformed row");
+                    continue;
+                }
+                if (vehicleDTO == null) {
+                    continue;
+                }
+                ImportRow row = validate(line, vehicleDTO, report);
+                if (row == null) {
+                    continue;
+                }
+                if (!seen.add(row.plateKey())) {
+                    report.reject(line, row.licensePlate(), "Duplicate license plate in upload");
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    insert(chunk, report);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!chunk.isEmpty()) {
+            insert(chunk, report);
+        }
+        log.info("Vehicle import finished: {} imported, {} rejected", report.getImported(), report.getRejected());
+        return report;
+    }
+
+    private VehicleDTO parseCsv(long line, String text) {
+        if (line == 1 && (text.equalsIgnoreCase(CSV_HEADER) || text.equalsIgnoreCase(CSV_HEADER_WITH_FACILITY))) {
+            return null;
+        }
+        String[] columns = text.split(",", -1);
+        if (columns.length != 2 && columns.length != 3) {
+            throw new IllegalArgumentException("Expected 2 or 3 columns");
+        }
+        return VehicleDTO.builder()
+                .licensePlate(columns[0].trim())
+                .vehicleEnum(columns[1].trim())
+                .facility(columns.length == 3 ? columns[2].trim() : null)
+                .build();
+    }
+
+    private VehicleDTO parseNdjson(long line, String text) throws JsonProcessingException {
+        return objectMapper.readValue(text, VehicleDTO.class);
+    }
+
+    private ImportRow validate(long line, VehicleDTO vehicleDTO, VehicleImportDTO report) {
+        Set<ConstraintViolation<VehicleDTO>> violations = validator.validate(vehicleDTO);
+        if (!violations.isEmpty()) {
+            report.reject(line, vehicleDTO.getLicensePlate(), violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+            return null;
+        }
+        try {
+            VehicleEnum vehicleEnum = VehicleEnum.valueOf(vehicleDTO.getVehicleEnum().toUpperCase());
+            return new ImportRow(line, vehicleDTO.getLicensePlate(),
+                    Vehicle.plateKey(vehicleDTO.getLicensePlate()), vehicleEnum,
+                    Vehicle.facilityKey(vehicleDTO.getFacility()));
+        } catch (IllegalArgumentException e) {
+            report.reject(line, vehicleDTO.getLicensePlate(), "Invalid vehicle type " + vehicleDTO.getVehicleEnum());
+            return null;
+        }
+    }
+
+    private void insert(List<ImportRow> chunk, VehicleImportDTO report) {
+        List<ImportRow> rows = withoutRegisteredPlates(chunk, report);
+        try {
+            save(rows);
+        } catch (DataIntegrityViolationException e) {
+            // A plate was registered concurrently; the chunk was rolled back, so drop it and try once more
+            rows = withoutRegisteredPlates(rows, report);
+            try {
+                save(rows);
+            } catch (DataIntegrityViolationException retryException) {
+                log.warn("Could not import chunk of {} vehicles", rows.size(), retryException);
+                rows.forEach(row -> report.reject(row.line(), row.licensePlate(), "Could not be imported"));
+                return;
+            }
+        }
+        report.imported(rows.size());
+    }
+
+    // Flushes through the repository so constraint violations surface as DataIntegrityViolationException
+    private void save(List<ImportRow> rows) {
+        transactionTemplate.executeWithoutResult(status -> {
+            vehicleRepository.saveAll(rows.stream()
+                    .map(row -> {
+                        Vehicle vehicle = Vehicle.of(row.vehicleEnum(), row.licensePlate());
+                        vehicle.setFacility(row.facility());
+                        return vehicle;
+                    })
+                    .toList());
+            vehicleRepository.flush();
+            entityManager.clear();
+        });
+    }
+
+    private List<ImportRow> withoutRegisteredPlates(List<ImportRow> rows, VehicleImportDTO report) {
+        Set<String> registered = vehicleRepository.findExistingPlateKeys
+                (rows.stream().map(ImportRow::plateKey).toList());
+        if (registered.isEmpty()) {
+            return rows;
+        }
+        List<ImportRow> unregistered = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            if (registered.contains(row.plateKey())) {
+                report.reject(row.line(), row.licensePlate(), "License plate already registered");
+            } else {
+                unregistered.add(row);
+            }
+        }
+        return unregistered;
+    }
+
+    private interface RowParser {
+        VehicleDTO parse(long line, String text) throws JsonProcessingException;
+    }
+
+    private record ImportRow(long line, String licensePlate, String plateKey, VehicleEnum vehicleEnum,
+                             String facility) {
+    }
+
+}
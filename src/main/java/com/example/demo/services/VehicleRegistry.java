@@ -0,0 +1,152 @@
+package com.example.demo.services;
+
+import com.example.demo.projections.RegisteredVehicle;
+import com.example.demo.repositories.VehicleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Registered vehicles cached by plate key (see Vehicle.plateKey). Plates the filter has never
+// seen are answered as unregistered without a query. The filter only learns of plates registered
+// through this instance, so it is rebuilt periodically, and a few misses a second still go to the
+// database to catch plates registered by other instances or loaded outside the application.
+@Slf4j
+@Service
+public class VehicleRegistry {
+    public static final String CACHE_NAME = "registeredVehicles";
+    private static final int PLATE_FILTER_PAGE_SIZE = 10000;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${vehicle.registry.plate-filter.enabled:true}")
+    private boolean plateFilterEnabled;
+
+    @Value("${vehicle.registry.plate-filter.expected-plates:1000000}")
+    private long expectedPlates;
+
+    @Value("${vehicle.registry.plate-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${vehicle.registry.plate-filter.miss-queries-per-second:20}")
+    private double missQueriesPerSecond;
+
+    private final AtomicLong nextMissQueryNanos = new AtomicLong(System.nanoTime());
+    private volatile RegisteredPlateFilter plateFilter;
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${vehicle.registry.plate-filter.rebuild-interval-ms:600000}",
+            initialDelayString = "${vehicle.registry.plate-filter.rebuild-interval-ms:600000}")
+    public void rebuildPlateFilter() {
+        if (!plateFilterEnabled) {
+            return;
+        }
+        RegisteredPlateFilter rebuilt = new RegisteredPlateFilter
+                (Math.max(expectedPlates, 2 * vehicleRepository.count()), falsePositiveRate);
+        long plates = 0;
+        String after = "";
+        List<String> page;
+        do {
+            page = vehicleRepository.findPlateKeysAfter(after, PageRequest.of(0, PLATE_FILTER_PAGE_SIZE));
+            page.forEach(rebuilt::add);
+            plates += page.size();
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1);
+            }
+        } while (page.size() == PLATE_FILTER_PAGE_SIZE);
+        plateFilter = rebuilt;
+        log.info("Registered plate filter rebuilt with {} plates", plates);
+    }
+
+    public void registered(String plateKey) {
+        RegisteredPlateFilter filter = plateFilter;
+        if (filter != null) {
+            filter.add(plateKey);
+        }
+    }
+
+    public boolean mightBeRegistered(String plateKey) {
+        RegisteredPlateFilter filter = plateFilter;
+        return filter == null || filter.mightContain(plateKey);
+    }
+
+    @Cacheable(cacheNames = CACHE_NAME, unless = "#result == null")
+    public Optional<RegisteredVehicle> findByPlateKey(String plateKey) {
+        if (!mightBeRegistered(plateKey) && !mayQueryMiss()) {
+            return Optional.empty();
+        }
+        Optional<RegisteredVehicle> registeredVehicle = vehicleRepository.findRegisteredVehicle(plateKey);
+        registeredVehicle.ifPresent(found -> registered(plateKey));
+        return registeredVehicle;
+    }
+
+    public Map<String, RegisteredVehicle> findAllByPlateKey(Collection<String> plateKeys) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        Map<String, RegisteredVehicle> result = new HashMap<>();
+        Set<String> misses = new HashSet<>();
+        for (String plateKey : plateKeys) {
+            RegisteredVehicle registeredVehicle = cache == null ? null : cache.get(plateKey, RegisteredVehicle.class);
+            if (registeredVehicle != null) {
+                result.put(plateKey, registeredVehicle);
+            } else if (mightBeRegistered(plateKey) || mayQueryMiss()) {
+                misses.add(plateKey);
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (RegisteredVehicle registeredVehicle : vehicleRepository.findRegisteredVehicles(misses)) {
+                result.put(registeredVehicle.licensePlate(), registeredVehicle);
+                registered(registeredVehicle.licensePlate());
+                if (cache != null) {
+                    cache.put(registeredVehicle.licensePlate(), registeredVehicle);
+                }
+            }
+        }
+        return result;
+    }
+
+    @CacheEvict(cacheNames = CACHE_NAME)
+    public void evict(String plateKey) {
+    }
+
+    // Evicts through the cache itself, since a call to evict from here would bypass the cache proxy
+    @TransactionalEventListener(fallbackExecution = true)
+    public void vehicleChanged(VehicleChangedEvent event) {
+        if (event.registered()) {
+            registered(event.plateKey());
+        }
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            cache.evict(event.plateKey());
+        }
+    }
+
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
+    public void clear() {
+    }
+
+    // Spaces the database lookups of filter misses evenly, so unregistered plates cannot flood the database
+    private boolean mayQueryMiss() {
+        if (plateFilter == null || missQueriesPerSecond <= 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long next = nextMissQueryNanos.get();
+        return now - next >= 0 && nextMissQueryNanos.compareAndSet(next, now + (long) (1e9 / missQueriesPerSecond));
+    }
+
+}
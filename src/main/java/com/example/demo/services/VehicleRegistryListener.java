@@ -0,0 +1,28 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Vehicle;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+// Only publishes; VehicleRegistry applies the change once the transaction commits. Contexts without a
+// registry, such as repository slice tests, simply have no listener for the event.
+public class VehicleRegistryListener {
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @PostPersist
+    public void registered(Vehicle vehicle) {
+        applicationEventPublisher.publishEvent(new VehicleChangedEvent(vehicle.getPlateKey(), true));
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void evict(Vehicle vehicle) {
+        applicationEventPublisher.publishEvent(new VehicleChangedEvent(vehicle.getPlateKey(), false));
+    }
+
+}
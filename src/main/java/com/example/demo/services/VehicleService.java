@@ -1,132 +1,233 @@
 package com.example.demo.services;
 
+import com.example.demo.dtos.MonthRolloverDTO;
 import com.example.demo.dtos.VehicleDTO;
 import com.example.demo.entities.NonResidentVehicle;
-import com.example.demo.entities.OfficialVehicle;
-import com.example.demo.entities.ResidentVehicle;
+import com.example.demo.entities.ResidentInvoice;
 import com.example.demo.entities.Vehicle;
 import com.example.demo.enums.VehicleEnum;
+import com.example.demo.events.GateEvent;
 import com.example.demo.exceptions.ResourceNotFoundException;
 import com.example.demo.exceptions.UniqueConstraintViolationError;
+import com.example.demo.metrics.OperationMetrics;
+import com.example.demo.projections.OfficialVehicleUsage;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.projections.RegisteredVehicle;
+import com.example.demo.projections.ResidentPayment;
+import com.example.demo.projections.VehicleSearchResult;
+import com.example.demo.repositories.ResidentInvoiceRepository;
 import com.example.demo.repositories.StayRepository;
 import com.example.demo.repositories.VehicleRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 public class VehicleService {
 
+    private static final int MAX_RESIDENT_PAYMENT_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     @Autowired
     private VehicleRepository vehicleRepository;
 
     @Autowired
     private StayRepository stayRepository;
 
-    public Vehicle registerVehicle(VehicleDTO vehicleDTO) {
-        try{
-            Vehicle vehicle = createVehicle(VehicleEnum.valueOf
-                    (vehicleDTO.getVehicleEnum()), vehicleDTO.getLicensePlate());
-            return vehicleRepository.save(vehicle);
-        }catch (DataIntegrityViolationException e) {
-            throw new UniqueConstraintViolationError("vehicle", "license plate");
-        }
-    }
+    @Autowired
+    private ActiveStayIndex activeStayIndex;
 
-    private Vehicle createVehicle(VehicleEnum vehicleEnum, String licensePlate) {
-        return switch (vehicleEnum) {
-            case OFFICIAL -> new OfficialVehicle(licensePlate);
-            case RESIDENT -> new ResidentVehicle(licensePlate);
-            case NON_RESIDENT -> new NonResidentVehicle(licensePlate);
-            default -> throw new IllegalArgumentException("Invalid vehicle type");
-        };
-    }
+    @Autowired
+    private Clock clock;
 
-    public void checkIn(String licensePlate) {
-        Vehicle vehicle = findByLicensePlate(licensePlate);
-        vehicle.setEntryTimeCurrentTime();
-        vehicleRepository.save(vehicle);
-    }
+    @Autowired
+    private VehicleRegistry vehicleRegistry;
 
-    private Vehicle findByLicensePlate(String licensePlate) {
-        return vehicleRepository.findByLicensePlate(licensePlate)
-                .orElseThrow(() -> new ResourceNotFoundException("vehicle", licensePlate));
-    }
+    @Autowired
+    private GateEventWriter gateEventWriter;
 
-    public void checkOutResident(String licensePlate) {
-        ResidentVehicle residentVehicle = (ResidentVehicle) findByLicensePlate(licensePlate);
+    @Autowired
+    private OperationMetrics operationMetrics;
 
-        residentVehicle.setExitTimeCurrentTime();
-        residentVehicle.addStayTimeToAccumulatedTime();
+    @Autowired
+    private StayPartitionManager stayPartitionManager;
 
-        residentVehicle.clearTimes();
+    @Autowired
+    private ResidentInvoiceRepository residentInvoiceRepository;
 
-        vehicleRepository.save(residentVehicle);
+    @Value("${vehicle.billing.zone:UTC}")
+    private ZoneId billingZone;
+
+    public Vehicle registerVehicle(VehicleDTO vehicleDTO) {
+        return operationMetrics.record("register", () -> {
+            try{
+                VehicleEnum vehicleEnum = VehicleEnum.valueOf(vehicleDTO.getVehicleEnum());
+                Vehicle vehicle = Vehicle.of(vehicleEnum, vehicleDTO.getLicensePlate());
+                vehicle.setFacility(vehicleDTO.getFacility());
+                Vehicle savedVehicle = vehicleRepository.save(vehicle);
+                vehicleRegistry.evict(savedVehicle.getPlateKey());
+                operationMetrics.vehicles("register", vehicleEnum, 1);
+                return savedVehicle;
+            }catch (DataIntegrityViolationException e) {
+                throw new UniqueConstraintViolationError("vehicle", "license plate");
+            }
+        });
     }
 
-    public void checkOutOfficial(String licensePlate) {
-        OfficialVehicle officialVehicle = (OfficialVehicle) findByLicensePlate(licensePlate);
+    public void checkIn(String facility, String licensePlate) {
+        String facilityKey = Vehicle.facilityKey(facility);
+        String plateKey = Vehicle.plateKey(licensePlate);
+        operationMetrics.record("checkIn", () -> activeStayIndex.withLock(plateKey, () -> {
+            if (activeStayIndex.find(plateKey).filter(parked -> parked.facility().equals(facilityKey)).isPresent()) {
+                return;
+            }
+            RegisteredVehicle registeredVehicle = findByPlateKey(facilityKey, plateKey);
+            ParkedVehicle parkedVehicle = new ParkedVehicle(registeredVehicle.vehicleId(), plateKey,
+                    registeredVehicle.vehicleEnum(), Instant.ofEpochMilli(clock.millis()), facilityKey);
+            if (!gateEventWriter.write(List.of(GateEvent.checkIn(parkedVehicle))).isEmpty()) {
+                activeStayIndex.refresh(plateKey);
+                return;
+            }
+            activeStayIndex.record(List.of(GateEvent.checkIn(parkedVehicle)));
+            operationMetrics.vehicles("checkIn", parkedVehicle.vehicleEnum(), 1);
+        }));
+    }
 
-        officialVehicle.setExitTimeCurrentTime();
-        officialVehicle.addStay();
+    // Vehicles registered at another facility are not found here
+    private RegisteredVehicle findByPlateKey(String facility, String plateKey) {
+        return vehicleRegistry.findByPlateKey(plateKey)
+                .filter(registeredVehicle -> registeredVehicle.facility().equals(facility))
+                .orElseThrow(() -> new ResourceNotFoundException("vehicle", plateKey));
+    }
 
-        vehicleRepository.save(officialVehicle);
+    private ParkedVehicle findParkedVehicle(String facility, String plateKey, VehicleEnum vehicleEnum) {
+        ParkedVehicle parkedVehicle = activeStayIndex.find(plateKey)
+                .filter(parked -> parked.facility().equals(facility))
+                .orElseGet(() -> {
+                    findByPlateKey(facility, plateKey);
+                    throw new IllegalStateException("Entry or exit time not set");
+                });
+        if (parkedVehicle.vehicleEnum() != vehicleEnum) {
+            throw new IllegalStateException("Vehicle " + plateKey + " is not of type " + vehicleEnum);
+        }
+        return parkedVehicle;
     }
 
-    public BigDecimal checkOutNonResident(String licensePlate) {
-        NonResidentVehicle nonResidentVehicle = (NonResidentVehicle) findByLicensePlate(licensePlate);
+    public void checkOutResident(String facility, String licensePlate) {
+        checkOut("checkOutResident", facility, licensePlate, VehicleEnum.RESIDENT);
+    }
 
-        nonResidentVehicle.setExitTimeCurrentTime();
+    public void checkOutOfficial(String facility, String licensePlate) {
+        checkOut("checkOutOfficial", facility, licensePlate, VehicleEnum.OFFICIAL);
+    }
 
-        BigDecimal parkingFee = nonResidentVehicle.calculateParkingFee();
+    public BigDecimal checkOutNonResident(String facility, String licensePlate) {
+        GateEvent checkOut = checkOut("checkOutNonResident", facility, licensePlate, VehicleEnum.NON_RESIDENT);
+        return NonResidentVehicle.calculateParkingFee(checkOut.durationOfStay());
+    }
 
-        nonResidentVehicle.clearTimes();
+    private GateEvent checkOut(String operation, String facility, String licensePlate, VehicleEnum vehicleEnum) {
+        String facilityKey = Vehicle.facilityKey(facility);
+        String plateKey = Vehicle.plateKey(licensePlate);
+        return operationMetrics.record(operation, () -> activeStayIndex.withLock(plateKey, () -> {
+            ParkedVehicle parkedVehicle = findParkedVehicle(facilityKey, plateKey, vehicleEnum);
+            GateEvent checkOut = GateEvent.checkOut(parkedVehicle, Instant.ofEpochMilli(clock.millis()));
+
+            if (!gateEventWriter.write(List.of(checkOut)).isEmpty()) {
+                activeStayIndex.refresh(plateKey);
+                throw new IllegalStateException("Entry or exit time not set");
+            }
+            activeStayIndex.record(List.of(checkOut));
+            operationMetrics.vehicles(operation, vehicleEnum, 1);
+
+            return checkOut;
+        }));
+    }
 
-        vehicleRepository.save(nonResidentVehicle);
+    @Transactional(readOnly = true)
+    public List<VehicleSearchResult> search(String facility, String prefix, String after, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        return operationMetrics.record("search", () -> vehicleRepository.searchByPlateKeyPrefix(Vehicle.facilityKey(facility),
+                Vehicle.plateKey(prefix), after == null ? "" : Vehicle.plateKey(after), PageRequest.of(0, pageSize)));
+    }
 
-        return parkingFee;
+    // Stay partitions are shared by all facilities and rotating them only touches partitions, so every
+    // facility's rollover rotates them; invoices are closed for the given facility only.
+    @Transactional
+    public MonthRolloverDTO startOfMonth(String facility) {
+        String facilityKey = Vehicle.facilityKey(facility);
+        return operationMetrics.record("startOfMonth", () -> {
+            gateEventWriter.flush();
+            StayPartitionManager.StayPartitionRotation rotation = stayPartitionManager.rotate();
+            int residentInvoicesClosed = closeResidentInvoices(facilityKey);
+            log.info("Month rollover of {} finished: stay partitions closed {}, {} resident invoices closed",
+                    facilityKey, rotation.closed(), residentInvoicesClosed);
+            return MonthRolloverDTO.builder()
+                    .facility(facilityKey)
+                    .stayPartitionsCreated(rotation.created())
+                    .stayPartitionsClosed(rotation.closed())
+                    .residentInvoicesClosed(residentInvoicesClosed)
+                    .build();
+        });
     }
 
-    public void startOfMonth() {
-        clearStaysForOfficialVehicles();
-        resetAccumulatedTimeForResidentVehicles();
+    // Only residents that parked in an earlier month have an open invoice to close
+    private int closeResidentInvoices(String facility) {
+        List<ResidentInvoice> openInvoices = residentInvoiceRepository
+                .findByFacilityAndClosedFalseAndBillingMonthBefore(facility, billingMonth(null));
+        openInvoices.forEach(ResidentInvoice::close);
+        residentInvoiceRepository.saveAll(openInvoices);
+        return openInvoices.size();
     }
 
-    private void clearStaysForOfficialVehicles() {
-        stayRepository.deleteAll();
+    private LocalDate billingMonth(YearMonth month) {
+        return month != null
+                ? month.atDay(1)
+                : ResidentInvoice.billingMonth(Instant.ofEpochMilli(clock.millis()), billingZone);
     }
 
-    private void resetAccumulatedTimeForResidentVehicles() {
-        List<ResidentVehicle> residentVehicles = findAllResidentVehicles();
-        for (ResidentVehicle residentVehicle : residentVehicles) {
-            residentVehicle.clearAccumulatedTime();
-            vehicleRepository.save(residentVehicle);
-        }
+    @Transactional(readOnly = true)
+    public List<OfficialVehicleUsage> officialVehicleUsage(String facility, Instant from, Instant to) {
+        return operationMetrics.record("officialVehicleUsage",
+                () -> stayRepository.findOfficialVehicleUsage(Vehicle.facilityKey(facility), from, to));
     }
 
-    public List<HashMap<String, Object>> residentPayment() {
-        List<ResidentVehicle> residentVehicles = findAllResidentVehicles();
-        List<HashMap<String, Object>> result = new ArrayList<>();
-        for(ResidentVehicle residentVehicle : residentVehicles){
-            String licensePlate = residentVehicle.getLicensePlate();
-            BigDecimal parkingTime = Vehicle.millisecondsToMinutes(residentVehicle.getAccumulatedTime());
-            BigDecimal value = residentVehicle.calculateParkingFee();
-            HashMap<String, Object> resultMap = new HashMap<>();
-            resultMap.put("licensePlate", licensePlate);
-            resultMap.put("parkingTime", parkingTime);
-            resultMap.put("value", value);
-            result.add(resultMap);
-        }
+    @Transactional(readOnly = true)
+    public List<ResidentPayment> residentPayment(String facility, YearMonth month) {
+        return operationMetrics.record("residentPayment", () -> residentInvoiceRepository.findPayments
+                (Vehicle.facilityKey(facility), billingMonth(month)));
+    }
 
-        return result;
+    @Transactional(readOnly = true)
+    public List<ResidentPayment> residentPayment(String facility, YearMonth month, String after, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_RESIDENT_PAYMENT_PAGE_SIZE));
+        return operationMetrics.record("residentPaymentPage", () -> residentInvoiceRepository.findPaymentsAfter
+                (Vehicle.facilityKey(facility), billingMonth(month), after == null ? "" : after,
+                        PageRequest.of(0, pageSize)));
     }
 
-    private List<ResidentVehicle> findAllResidentVehicles(){
-        return vehicleRepository.findAllResidentVehicle();
+    @Transactional(readOnly = true)
+    public void streamResidentPayment(String facility, YearMonth month, Consumer<ResidentPayment> consumer) {
+        operationMetrics.record("residentPaymentStream", () -> {
+            try (Stream<ResidentPayment> residentPayments = residentInvoiceRepository
+                    .streamPayments(Vehicle.facilityKey(facility), billingMonth(month))) {
+                residentPayments.forEach(consumer);
+            }
+        });
     }
 }
@@ -0,0 +1,236 @@
+package com.example.demo.services;
+
+import com.example.demo.events.GateEvent;
+import com.example.demo.events.GateEventLog;
+import com.example.demo.exceptions.GateBackpressureException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Accepts gate events once they are in the local log and writes them to the database
+// from a single thread, many events per transaction. The single writer keeps the
+// per-plate order of the log. A batch that keeps failing for a reason other than an
+// unreachable database is written one event at a time, and the events that still fail
+// are logged and skipped so the gates are not held up behind them.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "vehicle.gate.write-behind.enabled", havingValue = "true")
+public class WriteBehindGateEventWriter implements GateEventWriter {
+
+    @Autowired
+    private GateEventStore gateEventStore;
+
+    @Autowired
+    private ActiveStayIndex activeStayIndex;
+
+    @Value("${vehicle.gate.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${vehicle.gate.write-behind.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${vehicle.gate.write-behind.offer-timeout-ms:200}")
+    private long offerTimeoutMs;
+
+    @Value("${vehicle.gate.write-behind.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${vehicle.gate.write-behind.log-directory:gate-log}")
+    private Path logDirectory;
+
+    @Value("${vehicle.gate.write-behind.log-segment-size-bytes:67108864}")
+    private long logSegmentSize;
+
+    private final LinkedBlockingQueue<GateEvent> queue = new LinkedBlockingQueue<>();
+    private final List<GateEvent> batch = new ArrayList<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private Semaphore capacity;
+    private GateEventLog gateEventLog;
+    private Thread writerThread;
+    private volatile boolean running;
+    private volatile long committedSequence;
+
+    @PostConstruct
+    public void start() throws IOException {
+        capacity = new Semaphore(queueCapacity);
+        gateEventLog = new GateEventLog(logDirectory, logSegmentSize);
+        List<GateEvent> pending = gateEventLog.open();
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} gate events not yet written to the database", pending.size());
+            for (int from = 0; from < pending.size(); from += maxBatchSize) {
+                logRejected(gateEventStore.apply(pending.subList(from, Math.min(from + maxBatchSize, pending.size()))));
+            }
+            gateEventLog.checkpoint(gateEventLog.lastSequence());
+            activeStayIndex.rebuild();
+        }
+        committedSequence = gateEventLog.lastSequence();
+
+        running = true;
+        writerThread = new Thread(this::drain, "gate-event-writer");
+        writerThread.start();
+    }
+
+    @Override
+    public List<GateEvent> write(List<GateEvent> events) {
+        if (events.isEmpty()) {
+            return List.of();
+        }
+        try {
+            if (!capacity.tryAcquire(events.size(), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new GateBackpressureException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GateBackpressureException();
+        }
+
+        appendLock.lock();
+        try {
+            queue.addAll(gateEventLog.append(events));
+        } catch (IOException e) {
+            capacity.release(events.size());
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+        return List.of();
+    }
+
+    @Override
+    public boolean flush(long timeoutMs) {
+        long target;
+        appendLock.lock();
+        try {
+            target = gateEventLog.lastSequence();
+        } finally {
+            appendLock.unlock();
+        }
+        long started = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (committedSequence < target && running && System.nanoTime() - started < timeoutNanos) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return committedSequence >= target;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        writerThread.join();
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            commit(batch);
+        }
+        gateEventLog.close();
+    }
+
+    private void drain() {
+        int failures = 0;
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    GateEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                }
+                if (failures < maxRetries) {
+                    commit(batch);
+                    batch.clear();
+                } else {
+                    commitOneByOne();
+                }
+                failures = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException | IOException e) {
+                if (!isTransient(e)) {
+                    failures++;
+                }
+                log.error("Failed to write {} gate events, retrying", batch.size(), e);
+                sleepBeforeRetry();
+            }
+        }
+    }
+
+    // Committed and skipped events leave the batch as they go, so a retry after a transient
+    // failure starts from the first event not yet written
+    private void commitOneByOne() throws IOException {
+        while (!batch.isEmpty()) {
+            GateEvent event = batch.get(0);
+            try {
+                commit(List.of(event));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw e;
+                }
+                log.error("Gate event {} could not be written to the database and was skipped: {}",
+                        event.sequence(), event, e);
+                committed(event.sequence(), 1);
+            }
+            batch.remove(0);
+        }
+    }
+
+    private void commit(List<GateEvent> events) throws IOException {
+        logRejected(gateEventStore.apply(events));
+        committed(events.get(events.size() - 1).sequence(), events.size());
+    }
+
+    // Checkpoints before releasing capacity, so a batch retried after a failed checkpoint is not released twice
+    private void committed(long sequence, int events) throws IOException {
+        appendLock.lock();
+        try {
+            gateEventLog.checkpoint(sequence);
+        } finally {
+            appendLock.unlock();
+        }
+        committedSequence = sequence;
+        capacity.release(events);
+    }
+
+    private void logRejected(List<GateEvent> rejected) {
+        if (!rejected.isEmpty()) {
+            log.warn("{} gate events did not match the vehicle state in the database and were skipped: {}",
+                    rejected.size(), rejected);
+        }
+    }
+
+    private static boolean isTransient(Exception e) {
+        return e instanceof IOException || e instanceof TransientDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private void sleepBeforeRetry() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
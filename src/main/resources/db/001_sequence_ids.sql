@@ -0,0 +1,12 @@
+-- Switches vehicle and stay ids from IDENTITY to pooled sequences (allocationSize = 50)
+-- so Hibernate can batch inserts. Run once against an existing database before deploying.
+-- The pooled optimizer treats each sequence value as the top of its block, hence MAX(id) + 50.
+
+CREATE SEQUENCE IF NOT EXISTS vehicle_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS stay_seq INCREMENT BY 50;
+
+SELECT setval('vehicle_seq', COALESCE((SELECT MAX(id) FROM vehicle), 0) + 50, false);
+SELECT setval('stay_seq', COALESCE((SELECT MAX(id) FROM stay), 0) + 50, false);
+
+ALTER TABLE vehicle ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE stay ALTER COLUMN id DROP IDENTITY IF EXISTS;
@@ -0,0 +1,22 @@
+-- Moves vehicle and stay entry/exit times from TIMESTAMP columns (written through
+-- java.util.Calendar in the JVM's default time zone) to BIGINT epoch milliseconds.
+-- Set the session time zone to the zone the application ran in before running it.
+
+-- SET TIME ZONE 'America/Sao_Paulo';
+
+ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS entry_time_epoch_ms BIGINT;
+ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS exit_time_epoch_ms BIGINT;
+ALTER TABLE stay ADD COLUMN IF NOT EXISTS entry_time_epoch_ms BIGINT;
+ALTER TABLE stay ADD COLUMN IF NOT EXISTS exit_time_epoch_ms BIGINT;
+
+UPDATE vehicle
+SET entry_time_epoch_ms = (EXTRACT(EPOCH FROM entry_time AT TIME ZONE current_setting('TimeZone')) * 1000)::BIGINT,
+    exit_time_epoch_ms = (EXTRACT(EPOCH FROM exit_time AT TIME ZONE current_setting('TimeZone')) * 1000)::BIGINT
+WHERE entry_time IS NOT NULL OR exit_time IS NOT NULL;
+
+UPDATE stay
+SET entry_time_epoch_ms = (EXTRACT(EPOCH FROM entry_time AT TIME ZONE current_setting('TimeZone')) * 1000)::BIGINT,
+    exit_time_epoch_ms = (EXTRACT(EPOCH FROM exit_time AT TIME ZONE current_setting('TimeZone')) * 1000)::BIGINT;
+
+ALTER TABLE vehicle DROP COLUMN entry_time, DROP COLUMN exit_time;
+ALTER TABLE stay DROP COLUMN entry_time, DROP COLUMN exit_time;
@@ -0,0 +1,5 @@
+-- Backs the official vehicle usage report, which groups stays per vehicle over an entry time range.
+-- CONCURRENTLY avoids blocking checkouts while the index is built; run outside a transaction.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_stay_official_vehicle_entry_time
+    ON stay (official_vehicle_id, entry_time_epoch_ms);
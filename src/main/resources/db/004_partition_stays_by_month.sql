@@ -0,0 +1,44 @@
+-- Turns stay into a table partitioned by month (UTC) of exit time, so month rollover no longer deletes
+-- stays. StayPartitionManager creates the following months and closes old ones with the stay_read_only
+-- trigger. Rows outside every month partition land in stay_default. Run once before deploying.
+
+CREATE OR REPLACE FUNCTION reject_stay_write() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    RAISE EXCEPTION 'Stay partition % is closed', TG_TABLE_NAME;
+END
+$$;
+
+ALTER TABLE stay RENAME TO stay_unpartitioned;
+DROP INDEX IF EXISTS idx_stay_official_vehicle_entry_time;
+
+CREATE TABLE stay (
+    id BIGINT NOT NULL,
+    official_vehicle_id BIGINT,
+    entry_time_epoch_ms BIGINT,
+    exit_time_epoch_ms BIGINT NOT NULL,
+    duration_of_stay NUMERIC(38, 2),
+    PRIMARY KEY (id, exit_time_epoch_ms),
+    CONSTRAINT fk_stay_official_vehicle FOREIGN KEY (official_vehicle_id) REFERENCES vehicle (id)
+) PARTITION BY RANGE (exit_time_epoch_ms);
+
+CREATE INDEX idx_stay_official_vehicle_entry_time ON stay (official_vehicle_id, entry_time_epoch_ms);
+CREATE TABLE stay_default PARTITION OF stay DEFAULT;
+
+DO $$
+DECLARE
+    month_start TIMESTAMP := date_trunc('month', now() AT TIME ZONE 'UTC');
+BEGIN
+    FOR i IN 0..1 LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF stay FOR VALUES FROM (%s) TO (%s)',
+                to_char(month_start + make_interval(months => i), '"stay_y"YYYY"m"MM'),
+                (extract(epoch FROM month_start + make_interval(months => i)) * 1000)::BIGINT,
+                (extract(epoch FROM month_start + make_interval(months => i + 1)) * 1000)::BIGINT);
+    END LOOP;
+END
+$$;
+
+INSERT INTO stay (id, official_vehicle_id, entry_time_epoch_ms, exit_time_epoch_ms, duration_of_stay)
+SELECT id, official_vehicle_id, entry_time_epoch_ms, exit_time_epoch_ms, duration_of_stay
+FROM stay_unpartitioned;
+
+DROP TABLE stay_unpartitioned;
@@ -0,0 +1,15 @@
+-- Adds the canonical plate key (uppercase, separators stripped) that gate lookups match on, so camera
+-- reads such as "abc1234", "ABC-1234" and "ABC 1234" resolve to the same vehicle. Run once before deploying.
+-- Plates that collapse to the same key must be merged first; this lists them:
+--   SELECT UPPER(regexp_replace(license_plate, '[^[:alnum:]]', '', 'g')) AS plate_key, array_agg(license_plate)
+--   FROM vehicle GROUP BY 1 HAVING COUNT(*) > 1;
+
+ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS plate_key VARCHAR(255);
+UPDATE vehicle SET plate_key = UPPER(regexp_replace(license_plate, '[^[:alnum:]]', '', 'g'))
+    WHERE plate_key IS NULL;
+ALTER TABLE vehicle ALTER COLUMN plate_key SET NOT NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_vehicle_plate_key ON vehicle (plate_key);
+
+-- Backs the attendant prefix search (plate_key LIKE 'ABC%' ORDER BY plate_key) under any collation.
+CREATE INDEX IF NOT EXISTS idx_vehicle_plate_key_prefix ON vehicle (plate_key text_pattern_ops);
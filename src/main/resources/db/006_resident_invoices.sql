@@ -0,0 +1,27 @@
+-- Moves resident billing from vehicle.accumulated_time, which month close reset on every resident, to one
+-- resident_invoice row per resident and month (UTC). Check-outs add to the open invoice of their exit month
+-- and month close only freezes the fee of the invoices still open. Run once before deploying; the backfill
+-- assumes accumulated_time only holds the current month, as it does between two month closes.
+
+CREATE TABLE IF NOT EXISTS resident_invoice (
+    resident_vehicle_id BIGINT NOT NULL,
+    billing_month DATE NOT NULL,
+    license_plate VARCHAR(255) NOT NULL,
+    accumulated_time BIGINT NOT NULL,
+    closed BOOLEAN NOT NULL,
+    fee NUMERIC(38, 4),
+    PRIMARY KEY (resident_vehicle_id, billing_month)
+);
+
+CREATE INDEX IF NOT EXISTS idx_resident_invoice_month_plate ON resident_invoice (billing_month, license_plate);
+
+-- Keeps the month close lookup of open invoices small once most months are closed.
+CREATE INDEX IF NOT EXISTS idx_resident_invoice_open ON resident_invoice (billing_month) WHERE NOT closed;
+
+INSERT INTO resident_invoice (resident_vehicle_id, billing_month, license_plate, accumulated_time, closed)
+SELECT id, date_trunc('month', now() AT TIME ZONE 'UTC')::date, license_plate, accumulated_time, FALSE
+FROM vehicle
+WHERE vehicle_type = 'RESIDENT' AND accumulated_time > 0
+ON CONFLICT DO NOTHING;
+
+ALTER TABLE vehicle DROP COLUMN accumulated_time;
@@ -0,0 +1,26 @@
+-- Adds the facility (car park) that vehicles are registered at, and copies it onto stays and resident invoices,
+-- so gate operations, reports and month close can work on one facility at a time. Existing rows belong to the
+-- default facility MAIN. Run once before deploying; adding a column with a constant default does not rewrite
+-- the tables.
+
+ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS facility VARCHAR(255) NOT NULL DEFAULT 'MAIN';
+ALTER TABLE stay ADD COLUMN IF NOT EXISTS facility VARCHAR(255) NOT NULL DEFAULT 'MAIN';
+ALTER TABLE resident_invoice ADD COLUMN IF NOT EXISTS facility VARCHAR(255) NOT NULL DEFAULT 'MAIN';
+
+-- Every per-facility query starts from an index that leads with the facility, so a report or month close
+-- at one facility reads only that facility's entries.
+CREATE INDEX IF NOT EXISTS idx_vehicle_facility_plate_key ON vehicle (facility, plate_key);
+CREATE INDEX IF NOT EXISTS idx_vehicle_facility_parked ON vehicle (facility, vehicle_enum)
+    WHERE entry_time_epoch_ms IS NOT NULL;
+
+DROP INDEX IF EXISTS idx_stay_official_vehicle_entry_time;
+CREATE INDEX IF NOT EXISTS idx_stay_facility_official_vehicle_entry_time
+    ON stay (facility, official_vehicle_id, entry_time_epoch_ms);
+
+DROP INDEX IF EXISTS idx_resident_invoice_month_plate;
+CREATE INDEX IF NOT EXISTS idx_resident_invoice_facility_month_plate
+    ON resident_invoice (facility, billing_month, license_plate);
+
+DROP INDEX IF EXISTS idx_resident_invoice_open;
+CREATE INDEX IF NOT EXISTS idx_resident_invoice_facility_open ON resident_invoice (facility, billing_month)
+    WHERE NOT closed;
@@ -0,0 +1,352 @@
+package com.example.demo.simulator;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.enums.VehicleEnum;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Replays a rush hour of gate traffic through the HTTP API of the application running on an
+// in-memory H2 database, then reports throughput and latency per endpoint. Arrivals are Poisson
+// with a rate that peaks mid-run; dwell times are log-normal per vehicle type in simulated minutes,
+// compressed by clock-speed, which also drives the application clock so fees match the dwell.
+// The whole schedule is drawn from the seed before the first request, so response times never change
+// which vehicle arrives when; each vehicle works through its own visits in order.
+// Run with: mvn -Psimulator compile exec:exec -Dsimulator.args="--fleet=5000 --arrivals-per-second=50"
+// --compare=<property> replays the same seeded run with the application property false and then true
+// on fresh databases and prints both side by side, e.g. --compare=vehicle.server.virtual-threads.enabled
+public class GateTrafficSimulator {
+    private static final String CHECK_IN = "check-in";
+    private static final String CHECK_IN_UNREGISTERED = "check-in (unregistered)";
+    private static final String RESIDENT_PAYMENT_REPORT = "report residentPayment";
+    private static final List<String> COMPARED_VALUES = List.of("false", "true");
+
+    private final SimulationConfig config;
+    private final String baseUrl;
+    private final Random random;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+    private final LongAdder stillParked = new LongAdder();
+    private long fleetBusy;
+
+    public GateTrafficSimulator(SimulationConfig config, String baseUrl) {
+        this.config = config;
+        this.baseUrl = baseUrl;
+        this.random = new Random(config.seed());
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimulationConfig config = SimulationConfig.parse(args);
+        if (config.compare() == null) {
+            writeCsv(config, Map.of("", simulate(config, "simulator", Map.of())));
+            return;
+        }
+        Map<String, Map<String, LatencyRecorder.Summary>> runs = new LinkedHashMap<>();
+        for (String value : COMPARED_VALUES) {
+            String variant = config.compare() + "=" + value;
+            System.out.printf("%n== %s ==%n", variant);
+            runs.put(variant, simulate(config, "simulator-" + value, Map.of(config.compare(), value)));
+        }
+        compare(runs);
+        writeCsv(config, runs);
+    }
+
+    private static Map<String, LatencyRecorder.Summary> simulate(SimulationConfig config, String database,
+                                                                 Map<String, String> variantProperties)
+            throws InterruptedException {
+        // Command line arguments, since default properties would lose to application.properties and
+        // point the run at the Postgres database configured there
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.hikari.data-source-properties.reWriteBatchedInserts=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.hibernate.show-sql=false",
+                "--logging.level.root=WARN",
+                "--vehicle.clock.speed=" + config.clockSpeed()));
+        config.applicationProperties().forEach((name, value) -> arguments.add("--" + name + "=" + value));
+        variantProperties.forEach((name, value) -> arguments.add("--" + name + "=" + value));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .run(arguments.toArray(String[]::new));
+        try {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            return new GateTrafficSimulator(config, "http://localhost:" + port + "/vehicle").run();
+        } finally {
+            context.close();
+        }
+    }
+
+    public Map<String, LatencyRecorder.Summary> run() throws InterruptedException {
+        List<SimulatedVehicle> fleet = new ArrayList<>(config.fleetSize());
+        for (int i = 0; i < config.fleetSize(); i++) {
+            fleet.add(new SimulatedVehicle(String.format("SM%06d", i), vehicleEnum()));
+        }
+        Schedule schedule = schedule(fleet);
+        registerFleet(fleet);
+
+        long start = System.nanoTime();
+        try (ExecutorService visits = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (config.reportEverySeconds() > 0) {
+                visits.submit(() -> readReports(start));
+            }
+            schedule.visits().forEach((vehicle, vehicleVisits) -> visits.submit(() -> visit(start, vehicle, vehicleVisits)));
+            schedule.unregistered().forEach(arrival -> visits.submit(() -> unregisteredVisit(start, arrival)));
+            sleepUntil(start, config.durationSeconds());
+            visits.shutdown();
+            if (!visits.awaitTermination(config.drainSeconds(), TimeUnit.SECONDS)) {
+                visits.shutdownNow();
+            }
+        }
+        return report((System.nanoTime() - start) / 1e9);
+    }
+
+    // Picks vehicles among those idle in simulated time, i.e. whose previous dwell has ended by the arrival
+    private Schedule schedule(List<SimulatedVehicle> fleet) {
+        List<SimulatedVehicle> idleVehicles = new ArrayList<>(fleet);
+        PriorityQueue<ParkedUntil> parked = new PriorityQueue<>(Comparator.comparingDouble(ParkedUntil::second)
+                .thenComparing(parkedUntil -> parkedUntil.vehicle().licensePlate()));
+        Map<SimulatedVehicle, List<Visit>> visits = new LinkedHashMap<>();
+        List<UnregisteredArrival> unregistered = new ArrayList<>();
+        double arrival = 0;
+        while ((arrival = nextArrival(arrival)) < config.durationSeconds()) {
+            if (random.nextDouble() < config.unregisteredShare()) {
+                unregistered.add(new UnregisteredArrival(arrival, String.format("UN%06d", unregistered.size())));
+                continue;
+            }
+            while (!parked.isEmpty() && parked.peek().second() <= arrival) {
+                idleVehicles.add(parked.poll().vehicle());
+            }
+            if (idleVehicles.isEmpty()) {
+                fleetBusy++;
+                continue;
+            }
+            int index = random.nextInt(idleVehicles.size());
+            SimulatedVehicle last = idleVehicles.remove(idleVehicles.size() - 1);
+            SimulatedVehicle vehicle = index == idleVehicles.size() ? last : idleVehicles.set(index, last);
+            long dwellMillis = dwellMillis(vehicle.vehicleEnum());
+            visits.computeIfAbsent(vehicle, key -> new ArrayList<>()).add(new Visit(arrival, dwellMillis));
+            parked.add(new ParkedUntil(arrival + dwellMillis / 1000.0, vehicle));
+        }
+        return new Schedule(visits, unregistered);
+    }
+
+    private void registerFleet(List<SimulatedVehicle> fleet) throws InterruptedException {
+        StringBuilder csv = new StringBuilder("licensePlate,vehicleEnum\n");
+        for (SimulatedVehicle vehicle : fleet) {
+            csv.append(vehicle.licensePlate()).append(',').append(vehicle.vehicleEnum()).append('\n');
+        }
+        long started = System.nanoTime();
+        if (!call("register/import", "/register/import", "text/csv", csv.toString(), 200)) {
+            throw new IllegalStateException("Fleet registration failed");
+        }
+        System.out.printf("Registered %d vehicles in %.0f ms%n", config.fleetSize(), (System.nanoTime() - started) / 1e6);
+        recorders.remove("register/import");
+    }
+
+    // A visit that starts late, because the previous check-out of the vehicle was slow, is not skipped
+    private void visit(long start, SimulatedVehicle vehicle, List<Visit> visits) {
+        try {
+            for (Visit visit : visits) {
+                sleepUntil(start, visit.arrival());
+                if (call(CHECK_IN, "/check-in/" + vehicle.licensePlate(), null, "", 204)) {
+                    try {
+                        Thread.sleep(visit.dwellMillis());
+                        checkOut(vehicle);
+                    } catch (InterruptedException e) {
+                        stillParked.increment();
+                        return;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void unregisteredVisit(long start, UnregisteredArrival arrival) {
+        try {
+            sleepUntil(start, arrival.second());
+            call(CHECK_IN_UNREGISTERED, "/check-in/" + arrival.licensePlate(), null, "", 404);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Streams the resident billing report as NDJSON while the gates are busy, reading it to the end
+    private void readReports(long start) {
+        try {
+            for (double second = config.reportEverySeconds(); second < config.durationSeconds();
+                 second += config.reportEverySeconds()) {
+                sleepUntil(start, second);
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/residentPayment"))
+                        .header("Accept", "application/x-ndjson")
+                        .GET()
+                        .build();
+                send(RESIDENT_PAYMENT_REPORT, request, 200);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkOut(SimulatedVehicle vehicle) throws InterruptedException {
+        String licensePlate = vehicle.licensePlate();
+        switch (vehicle.vehicleEnum()) {
+            case RESIDENT -> call("check-out resident", "/check-out/checkoutResident/" + licensePlate, null, "", 204);
+            case OFFICIAL -> call("check-out official", "/check-out/checkoutOfficial/" + licensePlate, null, "", 204);
+            case NON_RESIDENT ->
+                    call("check-out non-resident", "/check-out/checkoutNonResident/" + licensePlate, null, "", 200);
+        }
+    }
+
+    private boolean call(String endpoint, String path, String contentType, String body, int expectedStatus)
+            throws InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (contentType != null) {
+            request.header("Content-Type", contentType);
+        }
+        return send(endpoint, request.build(), expectedStatus);
+    }
+
+    private boolean send(String endpoint, HttpRequest request, int expectedStatus) throws InterruptedException {
+        long started = System.nanoTime();
+        int status;
+        try {
+            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            status = -1;
+        }
+        recorders.computeIfAbsent(endpoint, name -> new LatencyRecorder())
+                .record(System.nanoTime() - started, status != expectedStatus);
+        return status == expectedStatus;
+    }
+
+    // Thinning of a Poisson process whose rate rises to rush-hour-peak times the base rate mid-run
+    private double nextArrival(double after) {
+        double maxRate = config.arrivalsPerSecond() * Math.max(1, config.rushHourPeak());
+        double arrival = after;
+        do {
+            arrival += -Math.log(1 - random.nextDouble()) / maxRate;
+        } while (random.nextDouble() * maxRate > arrivalRate(arrival));
+        return arrival;
+    }
+
+    private double arrivalRate(double second) {
+        double middle = config.durationSeconds() / 2.0;
+        double width = config.durationSeconds() / 6.0;
+        double rush = Math.exp(-Math.pow((second - middle) / width, 2));
+        return config.arrivalsPerSecond() * (1 + (Math.max(1, config.rushHourPeak()) - 1) * rush);
+    }
+
+    private long dwellMillis(VehicleEnum vehicleEnum) {
+        double medianMinutes = switch (vehicleEnum) {
+            case RESIDENT -> config.residentDwellMinutes();
+            case OFFICIAL -> config.officialDwellMinutes();
+            case NON_RESIDENT -> config.nonResidentDwellMinutes();
+        };
+        double minutes = medianMinutes * Math.exp(config.dwellSpread() * random.nextGaussian());
+        return (long) (minutes * 60_000 / config.clockSpeed());
+    }
+
+    private VehicleEnum vehicleEnum() {
+        double pick = random.nextDouble();
+        if (pick < config.residentShare()) {
+            return VehicleEnum.RESIDENT;
+        }
+        return pick < config.residentShare() + config.officialShare() ? VehicleEnum.OFFICIAL : VehicleEnum.NON_RESIDENT;
+    }
+
+    private static void sleepUntil(long start, double second) throws InterruptedException {
+        long wait = start + (long) (second * 1e9) - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private Map<String, LatencyRecorder.Summary> report(double elapsedSeconds) {
+        Map<String, LatencyRecorder.Summary> summaries = new TreeMap<>();
+        recorders.forEach((endpoint, recorder) -> summaries.put(endpoint, recorder.summarize(elapsedSeconds)));
+
+        System.out.printf("%nSeed %d, %.1f s, fleet %d (%.0f%% resident, %.0f%% official, %.0f%% non-resident), "
+                        + "%.1f arrivals/s at peak x%.1f, clock x%.0f%n", config.seed(), elapsedSeconds,
+                config.fleetSize(), config.residentShare() * 100, config.officialShare() * 100,
+                config.nonResidentShare() * 100, config.arrivalsPerSecond(), config.rushHourPeak(), config.clockSpeed());
+        System.out.printf("%-26s %9s %7s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        summaries.forEach((endpoint, summary) -> System.out.printf("%-26s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                endpoint, summary.requests(), summary.errors(), summary.throughput(), summary.p50Millis(),
+                summary.p99Millis(), summary.p999Millis(), summary.maxMillis()));
+        System.out.printf("Arrivals turned away with the whole fleet parked: %d, vehicles still parked at the end: %d%n",
+                fleetBusy, stillParked.sum());
+        return summaries;
+    }
+
+    private static void compare(Map<String, Map<String, LatencyRecorder.Summary>> runs) {
+        List<String> variants = new ArrayList<>(runs.keySet());
+        Map<String, LatencyRecorder.Summary> first = runs.get(variants.get(0));
+        Map<String, LatencyRecorder.Summary> second = runs.get(variants.get(1));
+        Set<String> endpoints = new TreeSet<>(first.keySet());
+        endpoints.addAll(second.keySet());
+
+        System.out.printf("%nSide by side: A = %s, B = %s%n", variants.get(0), variants.get(1));
+        System.out.printf("%-26s %9s %9s %9s %9s %9s %9s %7s %7s%n",
+                "endpoint", "req/s A", "req/s B", "p99 ms A", "p99 ms B", "max ms A", "max ms B", "err A", "err B");
+        LatencyRecorder.Summary none = new LatencyRecorder.Summary(0, 0, 0, 0, 0, 0, 0);
+        for (String endpoint : endpoints) {
+            LatencyRecorder.Summary a = first.getOrDefault(endpoint, none);
+            LatencyRecorder.Summary b = second.getOrDefault(endpoint, none);
+            System.out.printf("%-26s %9.1f %9.1f %9.2f %9.2f %9.2f %9.2f %7d %7d%n", endpoint,
+                    a.throughput(), b.throughput(), a.p99Millis(), b.p99Millis(), a.maxMillis(), b.maxMillis(),
+                    a.errors(), b.errors());
+        }
+    }
+
+    private static void writeCsv(SimulationConfig config, Map<String, Map<String, LatencyRecorder.Summary>> runs)
+            throws IOException {
+        if (config.output() == null) {
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Path.of(config.output())))) {
+            out.println("variant,endpoint,requests,errors,throughput,p50_ms,p99_ms,p999_ms,max_ms");
+            runs.forEach((variant, summaries) -> summaries.forEach((endpoint, summary) -> out.printf(Locale.ROOT,
+                    "%s,%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f%n", variant, endpoint, summary.requests(), summary.errors(),
+                    summary.throughput(), summary.p50Millis(), summary.p99Millis(), summary.p999Millis(),
+                    summary.maxMillis())));
+        }
+    }
+
+    private record SimulatedVehicle(String licensePlate, VehicleEnum vehicleEnum) {
+    }
+
+    private record Visit(double arrival, long dwellMillis) {
+    }
+
+    private record UnregisteredArrival(double second, String licensePlate) {
+    }
+
+    private record ParkedUntil(double second, SimulatedVehicle vehicle) {
+    }
+
+    private record Schedule(Map<SimulatedVehicle, List<Visit>> visits, List<UnregisteredArrival> unregistered) {
+    }
+
+}
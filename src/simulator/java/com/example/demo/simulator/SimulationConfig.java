@@ -0,0 +1,83 @@
+package com.example.demo.simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Workload of one simulator run. Every value has a default, so runs with the same arguments
+// (including the seed) replay the same arrivals, vehicle picks and dwell times.
+public record SimulationConfig(
+        int fleetSize,
+        double residentShare,
+        double officialShare,
+        double unregisteredShare,
+        double arrivalsPerSecond,
+        double rushHourPeak,
+        int durationSeconds,
+        double clockSpeed,
+        double residentDwellMinutes,
+        double officialDwellMinutes,
+        double nonResidentDwellMinutes,
+        double dwellSpread,
+        int drainSeconds,
+        double reportEverySeconds,
+        long seed,
+        String output,
+        String compare,
+        Map<String, String> applicationProperties) {
+
+    public static SimulationConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            for (String option : arg.trim().split("\\s+")) {
+                if (option.isEmpty()) {
+                    continue;
+                }
+                if (!option.startsWith("--") || !option.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + option);
+                }
+                int separator = option.indexOf('=');
+                options.put(option.substring(2, separator), option.substring(separator + 1));
+            }
+        }
+        SimulationConfig config = new SimulationConfig(
+                Integer.parseInt(options.getOrDefault("fleet", "2000")),
+                Double.parseDouble(options.getOrDefault("resident-share", "0.5")),
+                Double.parseDouble(options.getOrDefault("official-share", "0.1")),
+                Double.parseDouble(options.getOrDefault("unregistered-share", "0.1")),
+                Double.parseDouble(options.getOrDefault("arrivals-per-second", "20")),
+                Double.parseDouble(options.getOrDefault("rush-hour-peak", "3")),
+                Integer.parseInt(options.getOrDefault("duration-seconds", "120")),
+                Double.parseDouble(options.getOrDefault("clock-speed", "600")),
+                Double.parseDouble(options.getOrDefault("resident-dwell-minutes", "480")),
+                Double.parseDouble(options.getOrDefault("official-dwell-minutes", "90")),
+                Double.parseDouble(options.getOrDefault("non-resident-dwell-minutes", "45")),
+                Double.parseDouble(options.getOrDefault("dwell-spread", "0.8")),
+                Integer.parseInt(options.getOrDefault("drain-seconds", "60")),
+                Double.parseDouble(options.getOrDefault("report-every-seconds", "0")),
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                options.get("output"),
+                options.get("compare"),
+                applicationProperties(options));
+        if (config.residentShare() + config.officialShare() > 1) {
+            throw new IllegalArgumentException("resident-share + official-share must not exceed 1");
+        }
+        return config;
+    }
+
+    // --app.<property>=<value> is passed to the application, e.g. --app.vehicle.gate.write-behind.enabled=true
+    private static Map<String, String> applicationProperties(Map<String, String> options) {
+        Map<String, String> properties = new TreeMap<>();
+        options.forEach((name, value) -> {
+            if (name.startsWith("app.")) {
+                properties.put(name.substring(4), value);
+            }
+        });
+        return properties;
+    }
+
+    public double nonResidentShare() {
+        return 1 - residentShare - officialShare;
+    }
+
+}
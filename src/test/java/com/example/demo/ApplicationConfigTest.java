@@ -3,7 +3,8 @@ package com.example.demo;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Tests stub repository lookups per case, so the registered plate filter (built once at startup) is off here.
+@SpringBootTest(properties = "vehicle.registry.plate-filter.enabled=false")
 @AutoConfigureMockMvc
 public class ApplicationConfigTest {
 }
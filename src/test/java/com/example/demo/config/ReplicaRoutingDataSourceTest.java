@@ -0,0 +1,72 @@
+package com.example.demo.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = database("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1");
+    private final DataSource replica = database("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1");
+
+    @BeforeEach
+    void setUp() {
+        for (DataSource dataSource : new DataSource[]{primary, replica}) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(16))");
+            jdbcTemplate.execute("DELETE FROM node");
+        }
+        new JdbcTemplate(primary).update("INSERT INTO node VALUES ('primary')");
+        new JdbcTemplate(replica).update("INSERT INTO node VALUES ('replica')");
+    }
+
+    @Test
+    void givenReadOnlyTransaction_whenQuery_thenUseReplica() {
+        DataSource routing = routing(replica);
+
+        assertEquals("replica", nodeName(routing, true));
+    }
+
+    @Test
+    void givenReadWriteTransactionOrNoTransaction_whenQuery_thenUsePrimary() {
+        DataSource routing = routing(replica);
+
+        assertEquals("primary", nodeName(routing, false));
+        assertEquals("primary", new JdbcTemplate(routing).queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    void givenUnavailableReplica_whenReadOnlyTransaction_thenFallBackToPrimary() {
+        DataSource routing = routing(database("jdbc:h2:mem:missing;IFEXISTS=TRUE"));
+
+        assertEquals("primary", nodeName(routing, true));
+        assertEquals("primary", nodeName(routing, true));
+    }
+
+    private DataSource routing(DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, 60000));
+    }
+
+    private static String nodeName(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> new JdbcTemplate(dataSource)
+                .queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private static DataSource database(String url) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url);
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+
+}
@@ -1,30 +1,55 @@
 package com.example.demo.controllers;
 
 import com.example.demo.ApplicationConfigTest;
+import com.example.demo.dtos.GateBatchDTO;
+import com.example.demo.dtos.GateEventResultDTO;
+import com.example.demo.dtos.MonthRolloverDTO;
+import com.example.demo.dtos.OccupancyDTO;
 import com.example.demo.dtos.VehicleDTO;
+import com.example.demo.dtos.VehicleImportDTO;
 import com.example.demo.entities.Vehicle;
+import com.example.demo.enums.GateEventStatus;
+import com.example.demo.enums.VehicleEnum;
 import com.example.demo.exceptions.InvalidVehicleEnum;
 import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.metrics.OperationMetrics;
+import com.example.demo.projections.OfficialVehicleUsage;
+import com.example.demo.projections.ResidentPayment;
+import com.example.demo.projections.VehicleSearchResult;
+import com.example.demo.services.GateBatchService;
+import com.example.demo.services.OccupancyService;
+import com.example.demo.services.VehicleImportService;
 import com.example.demo.services.VehicleService;
 import com.example.demo.utils.TestDataBuilder;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.YearMonth;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 class VehicleControllerTest extends ApplicationConfigTest {
@@ -33,15 +58,33 @@ class VehicleControllerTest extends ApplicationConfigTest {
     @MockBean
     private VehicleService vehicleService;
 
+    @MockBean
+    private GateBatchService gateBatchService;
+
+    @MockBean
+    private OccupancyService occupancyService;
+
+    @MockBean
+    private VehicleImportService vehicleImportService;
+
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     Vehicle vehicle = TestDataBuilder.buildVehicleNoId();
     VehicleDTO vehicleDTO = TestDataBuilder.buildVehicleDTO();
 
+    private double errorCount(String exception, String status) {
+        Counter counter = meterRegistry.find(OperationMetrics.ERRORS)
+                .tag("exception", exception).tag("status", status).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
     private MockHttpServletRequestBuilder buildMockRequestPost
             (String endpoint) throws Exception {
         return MockMvcRequestBuilders
@@ -107,6 +150,40 @@ class VehicleControllerTest extends ApplicationConfigTest {
         verify(vehicleService, never()).registerVehicle(vehicleDTO);
     }
 
+    @Test
+    void givenCsvUpload_whenImportVehicles_thenReturnImportReport() throws Exception {
+        VehicleImportDTO report = new VehicleImportDTO(10);
+        report.imported(1);
+        report.reject(3, "1", "licensePlate: size must be between 3 and 10");
+        when(vehicleImportService.importCsv(any(InputStream.class))).thenReturn(report);
+
+        mockMvc.perform(MockMvcRequestBuilders.post(PATH + "/register/import")
+                        .contentType("text/csv")
+                        .content("licensePlate,vehicleEnum\n123,RESIDENT\n1,OFFICIAL\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+
+        verify(vehicleImportService, times(1)).importCsv(any(InputStream.class));
+    }
+
+    @Test
+    void givenNdjsonUpload_whenImportVehicles_thenReturnImportReport() throws Exception {
+        VehicleImportDTO report = new VehicleImportDTO(10);
+        report.imported(1);
+        when(vehicleImportService.importNdjson(any(InputStream.class))).thenReturn(report);
+
+        mockMvc.perform(MockMvcRequestBuilders.post(PATH + "/register/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(objectMapper.writeValueAsString(vehicleDTO) + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors", hasSize(0)));
+
+        verify(vehicleImportService, times(1)).importNdjson(any(InputStream.class));
+    }
+
     @Test
     void givenValidLicensePlate_whenCheckInVehicle_thenSucceed() throws Exception {
         MockHttpServletRequestBuilder mockRequest = buildMockRequestPost
@@ -115,7 +192,45 @@ class VehicleControllerTest extends ApplicationConfigTest {
         mockMvc.perform(mockRequest)
                 .andExpect(status().isNoContent());
 
-        verify(vehicleService, times(1)).checkIn(vehicle.getLicensePlate());
+        verify(vehicleService, times(1)).checkIn(null, vehicle.getLicensePlate());
+    }
+
+    @Test
+    void givenValidPlates_whenCheckInBatch_thenReturnResultPerPlate() throws Exception {
+        GateBatchDTO gateBatchDTO = GateBatchDTO.builder()
+                .licensePlates(List.of("123", "456"))
+                .build();
+        List<GateEventResultDTO> result = List.of(
+                GateEventResultDTO.builder().licensePlate("123").status(GateEventStatus.CHECKED_IN).build(),
+                GateEventResultDTO.builder().licensePlate("456").status(GateEventStatus.NOT_FOUND).build());
+        when(gateBatchService.checkIn(null, gateBatchDTO.getLicensePlates())).thenReturn(result);
+
+        MockHttpServletRequestBuilder mockRequest = buildMockRequestPost
+                ("/check-in/batch", gateBatchDTO);
+
+        mockMvc.perform(mockRequest)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+
+        verify(gateBatchService, times(1)).checkIn(null, gateBatchDTO.getLicensePlates());
+    }
+
+    @Test
+    void givenEmptyBatch_whenCheckOutBatch_thenThrowMethodArgumentNotValidException() throws Exception {
+        GateBatchDTO gateBatchDTO = GateBatchDTO.builder()
+                .licensePlates(Collections.emptyList())
+                .build();
+
+        MockHttpServletRequestBuilder mockRequest = buildMockRequestPost
+                ("/check-out/batch", gateBatchDTO);
+
+        mockMvc.perform(mockRequest)
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue
+                        (result.getResolvedException() instanceof MethodArgumentNotValidException));
+
+        verify(gateBatchService, never()).checkOut(any(), any());
     }
 
     @Test
@@ -127,7 +242,7 @@ class VehicleControllerTest extends ApplicationConfigTest {
                 .andExpect(status().isNoContent());
 
         verify(vehicleService, times(1))
-                .checkOutOfficial(vehicle.getLicensePlate());
+                .checkOutOfficial(null, vehicle.getLicensePlate());
     }
 
     @Test
@@ -139,14 +254,14 @@ class VehicleControllerTest extends ApplicationConfigTest {
                 .andExpect(status().isNoContent());
 
         verify(vehicleService, times(1))
-                .checkOutResident(vehicle.getLicensePlate());
+                .checkOutResident(null, vehicle.getLicensePlate());
     }
 
     @Test
     void givenValidLicensePlate_whenCheckOutNonResidentVehicle_thenSucceedAndReturnParkingFee() throws Exception {
         BigDecimal result = BigDecimal.ZERO;
 
-        when(vehicleService.checkOutNonResident(vehicle.getLicensePlate()))
+        when(vehicleService.checkOutNonResident(null, vehicle.getLicensePlate()))
                 .thenReturn(result);
 
         MockHttpServletRequestBuilder mockRequest = buildMockRequestPost
@@ -157,12 +272,12 @@ class VehicleControllerTest extends ApplicationConfigTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(result)));
 
         verify(vehicleService, times(1))
-                .checkOutNonResident(vehicle.getLicensePlate());
+                .checkOutNonResident(null, vehicle.getLicensePlate());
     }
 
     @Test
     void givenNonExistentLicensePlate_whenCheckOutVehicle_thenReturn404() throws Exception {
-        when(vehicleService.checkOutNonResident(vehicle.getLicensePlate()))
+        when(vehicleService.checkOutNonResident(null, vehicle.getLicensePlate()))
                 .thenThrow(ResourceNotFoundException.class);
 
         MockHttpServletRequestBuilder mockRequest = buildMockRequestPost
@@ -174,24 +289,44 @@ class VehicleControllerTest extends ApplicationConfigTest {
                         (result.getResolvedException() instanceof ResourceNotFoundException));
 
         verify(vehicleService, times(1))
-                .checkOutNonResident(vehicle.getLicensePlate());
+                .checkOutNonResident(null, vehicle.getLicensePlate());
     }
 
     @Test
-    void givenRequestForStartOfMonth_whenStartOfMonth_thenSucceed() throws Exception {
+    void givenNonExistentLicensePlate_whenCheckOutVehicle_thenCountError() throws Exception {
+        double errors = errorCount("ResourceNotFoundException", "404");
+        when(vehicleService.checkOutNonResident(null, vehicle.getLicensePlate()))
+                .thenThrow(ResourceNotFoundException.class);
+
+        mockMvc.perform(buildMockRequestPost("/check-out/checkoutNonResident/" + vehicle.getLicensePlate()))
+                .andExpect(status().isNotFound());
+
+        assertEquals(errors + 1, errorCount("ResourceNotFoundException", "404"));
+    }
+
+    @Test
+    void givenRequestForStartOfMonth_whenStartOfMonth_thenSucceedAndReturnRolloverReport() throws Exception {
+        MonthRolloverDTO result = MonthRolloverDTO.builder()
+                .stayPartitionsCreated(List.of("stay_y2023m09"))
+                .stayPartitionsClosed(List.of("stay_y2023m06"))
+                .residentInvoicesClosed(2)
+                .build();
+        when(vehicleService.startOfMonth(null)).thenReturn(result);
+
         MockHttpServletRequestBuilder mockRequest = buildMockRequestPost
                 ("/startOfMonth");
 
         mockMvc.perform(mockRequest)
-                .andExpect(status().isNoContent());
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(result)));
 
-        verify(vehicleService, times(1)).startOfMonth();
+        verify(vehicleService, times(1)).startOfMonth(null);
     }
 
     @Test
     void givenRequestForResidentPayment_whenGetResidentPaymentInfo_thenSucceed() throws Exception {
-        List<HashMap<String, Object>> result = new ArrayList<>();
-        when(vehicleService.residentPayment()).thenReturn(result);
+        List<ResidentPayment> result = new ArrayList<>();
+        when(vehicleService.residentPayment(null, null)).thenReturn(result);
 
         MockHttpServletRequestBuilder mockRequest = MockMvcRequestBuilders
                 .get(PATH + "/residentPayment")
@@ -202,8 +337,159 @@ class VehicleControllerTest extends ApplicationConfigTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(result.size())));
 
-        verify(vehicleService, times(1)).residentPayment();
+        verify(vehicleService, times(1)).residentPayment(null, null);
+    }
+
+    @Test
+    void givenMonth_whenGetResidentPaymentInfo_thenReturnInvoicesOfThatMonth() throws Exception {
+        List<ResidentPayment> result = Collections.singletonList
+                (new ResidentPayment("456", 60000L));
+        when(vehicleService.residentPayment(null, YearMonth.of(2023, 6))).thenReturn(result);
+
+        MockHttpServletRequestBuilder mockRequest = MockMvcRequestBuilders
+                .get(PATH + "/residentPayment")
+                .param("month", "2023-06")
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(mockRequest)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        verify(vehicleService, times(1)).residentPayment(null, YearMonth.of(2023, 6));
+    }
+
+    @Test
+    void givenCursorAndSize_whenGetResidentPaymentInfo_thenReturnPage() throws Exception {
+        List<ResidentPayment> result = Collections.singletonList
+                (new ResidentPayment("456", 60000L));
+        when(vehicleService.residentPayment(null, null, "123", 1)).thenReturn(result);
+
+        MockHttpServletRequestBuilder mockRequest = MockMvcRequestBuilders
+                .get(PATH + "/residentPayment")
+                .param("after", "123")
+                .param("size", "1")
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(mockRequest)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].licensePlate").value("456"));
+
+        verify(vehicleService, times(1)).residentPayment(null, null, "123", 1);
+        verify(vehicleService, never()).residentPayment(any(), any());
+    }
+
+    @Test
+    void givenPrefix_whenSearch_thenReturnMatchingVehicles() throws Exception {
+        List<VehicleSearchResult> result = Collections.singletonList
+                (new VehicleSearchResult("ABC123", "ABC-123", VehicleEnum.RESIDENT, null));
+        when(vehicleService.search("north", "abc", null, 20)).thenReturn(result);
+
+        MockHttpServletRequestBuilder mockRequest = MockMvcRequestBuilders
+                .get(PATH + "/search")
+                .param("prefix", "abc")
+                .param("facility", "north")
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(mockRequest)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].plateKey").value("ABC123"))
+                .andExpect(jsonPath("$[0].licensePlate").value("ABC-123"));
+
+        verify(vehicleService, times(1)).search("north", "abc", null, 20);
+    }
+
+    @Test
+    void givenParkedVehicles_whenGetOccupancy_thenReturnCounts() throws Exception {
+        OccupancyDTO result = OccupancyDTO.builder()
+                .parked(Map.of(VehicleEnum.RESIDENT, 2L))
+                .total(2)
+                .build();
+        when(occupancyService.occupancy(null)).thenReturn(result);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(PATH + "/occupancy").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.parked.RESIDENT").value(2))
+                .andExpect(jsonPath("$.total").value(2));
+
+        verify(occupancyService, times(1)).occupancy(null);
+    }
+
+    @Test
+    void givenFacility_whenGetOccupancy_thenReturnCountsOfFacility() throws Exception {
+        OccupancyDTO result = OccupancyDTO.builder()
+                .facility("NORTH")
+                .parked(Map.of(VehicleEnum.OFFICIAL, 1L))
+                .total(1)
+                .build();
+        when(occupancyService.occupancy("NORTH")).thenReturn(result);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(PATH + "/occupancy").param("facility", "NORTH")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.facility").value("NORTH"))
+                .andExpect(jsonPath("$.total").value(1));
+
+        verify(occupancyService, times(1)).occupancy("NORTH");
+    }
+
+    @Test
+    void givenEventStreamAccept_whenGetOccupancyStream_thenSubscribe() throws Exception {
+        when(occupancyService.subscribe(null)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(PATH + "/occupancy/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(occupancyService, times(1)).subscribe(null);
+    }
+
+    @Test
+    void givenPeriod_whenGetOfficialUsage_thenReturnUsagePerVehicle() throws Exception {
+        Instant from = Instant.parse("2023-08-01T00:00:00Z");
+        Instant to = Instant.parse("2023-09-01T00:00:00Z");
+        List<OfficialVehicleUsage> result = Collections.singletonList(new OfficialVehicleUsage
+                ("123", 2L, new BigDecimal("4.00"), from, from.plusSeconds(60)));
+        when(vehicleService.officialVehicleUsage(null, from, to)).thenReturn(result);
+
+        MockHttpServletRequestBuilder mockRequest = MockMvcRequestBuilders
+                .get(PATH + "/officialUsage")
+                .param("from", from.toString())
+                .param("to", to.toString())
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(mockRequest)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].licensePlate").value("123"))
+                .andExpect(jsonPath("$[0].stayCount").value(2))
+                .andExpect(jsonPath("$[0].averageDurationOfStay").value(2.0));
+
+        verify(vehicleService, times(1)).officialVehicleUsage(null, from, to);
+    }
+
+    @Test
+    void givenNdjsonAccept_whenGetResidentPaymentInfo_thenStreamRows() throws Exception {
+        ResidentPayment residentPayment = new ResidentPayment("123", 60000L);
+        doAnswer(invocation -> {
+            Consumer<ResidentPayment> consumer = invocation.getArgument(2);
+            consumer.accept(residentPayment);
+            return null;
+        }).when(vehicleService).streamResidentPayment(isNull(), isNull(), any());
+
+        MockHttpServletRequestBuilder mockRequest = MockMvcRequestBuilders
+                .get(PATH + "/residentPayment")
+                .accept(MediaType.APPLICATION_NDJSON);
+
+        MvcResult mvcResult = mockMvc.perform(mockRequest)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(residentPayment) + "\n"));
     }
 
 
-}
\ No newline at end of file
+}
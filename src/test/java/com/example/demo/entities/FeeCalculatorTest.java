@@ -0,0 +1,63 @@
+package com.example.demo.entities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FeeCalculatorTest {
+
+    private static BigDecimal legacyMinutes(long milliseconds) {
+        return BigDecimal.valueOf(milliseconds)
+                .divide(BigDecimal.valueOf(1000 * 60), 2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal legacyNonResidentFee(long milliseconds) {
+        return legacyMinutes(milliseconds).multiply(BigDecimal.valueOf(0.5));
+    }
+
+    private static BigDecimal legacyResidentFee(long milliseconds) {
+        return legacyMinutes(milliseconds).multiply(BigDecimal.valueOf(0.05));
+    }
+
+    private static void assertParity(long milliseconds) {
+        assertEquals(legacyMinutes(milliseconds), Vehicle.millisecondsToMinutes(milliseconds));
+        assertEquals(legacyNonResidentFee(milliseconds), NonResidentVehicle.calculateParkingFee(milliseconds));
+        assertEquals(legacyResidentFee(milliseconds), ResidentVehicle.calculateParkingFee(milliseconds));
+    }
+
+    @Test
+    void givenEveryMillisecondUpToOneHour_whenCalculateFees_thenMatchBigDecimalHalfUp() {
+        for (long milliseconds = -120_000; milliseconds <= 3_600_000; milliseconds++) {
+            assertParity(milliseconds);
+        }
+    }
+
+    @Test
+    void givenRandomDurationsUpToCenturies_whenCalculateFees_thenMatchBigDecimalHalfUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000_000; i++) {
+            assertParity(random.nextLong() % (1L << 51));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 299, 300, 301, 29_999, 30_000, 30_001, 59_999, 60_000,
+            86_400_000, 2_678_400_000L, Long.MAX_VALUE / 100 - 30_000})
+    void givenRoundingBoundaries_whenCalculateFees_thenMatchBigDecimalHalfUp(long milliseconds) {
+        assertParity(milliseconds);
+        assertParity(-milliseconds);
+    }
+
+    @Test
+    void givenDurationTooLargeForFixedPoint_whenCalculateMinutes_thenThrowArithmeticException() {
+        assertThrows(ArithmeticException.class, () -> FeeCalculator.centiMinutes(Long.MAX_VALUE));
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.example.demo.events;
+
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.projections.ParkedVehicle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GateEventLogTest {
+
+    @TempDir
+    Path directory;
+
+    ParkedVehicle parkedVehicle = new ParkedVehicle(1L, "123", VehicleEnum.OFFICIAL,
+            Instant.ofEpochMilli(1_000), "NORTH");
+
+    @Test
+    void givenAppendedEvents_whenReopen_thenReplayEventsAfterCheckpoint() throws IOException {
+        try (GateEventLog gateEventLog = new GateEventLog(directory)) {
+            gateEventLog.open();
+            gateEventLog.append(List.of(GateEvent.checkIn(parkedVehicle),
+                    GateEvent.checkOut(parkedVehicle, Instant.ofEpochMilli(61_000))));
+            gateEventLog.checkpoint(1);
+        }
+
+        try (GateEventLog gateEventLog = new GateEventLog(directory)) {
+            List<GateEvent> result = gateEventLog.open();
+
+            assertEquals(1, result.size());
+            assertEquals(2, result.get(0).sequence());
+            assertEquals(60_000, result.get(0).durationOfStay());
+            assertEquals(2, gateEventLog.lastSequence());
+        }
+    }
+
+    @Test
+    void givenTornTail_whenReopen_thenIgnoreIncompleteRecord() throws IOException {
+        try (GateEventLog gateEventLog = new GateEventLog(directory)) {
+            gateEventLog.open();
+            gateEventLog.append(List.of(GateEvent.checkIn(parkedVehicle)));
+        }
+        Files.write(segments().get(0), new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        try (GateEventLog gateEventLog = new GateEventLog(directory)) {
+            List<GateEvent> result = gateEventLog.open();
+
+            assertEquals(1, result.size());
+            assertEquals(GateEvent.checkIn(parkedVehicle).withSequence(1), result.get(0));
+        }
+    }
+
+    @Test
+    void givenFullyCheckpointedLog_whenAppend_thenContinueSequence() throws IOException {
+        try (GateEventLog gateEventLog = new GateEventLog(directory)) {
+            gateEventLog.open();
+            gateEventLog.append(List.of(GateEvent.checkIn(parkedVehicle)));
+            gateEventLog.checkpoint(1);
+
+            List<GateEvent> result = gateEventLog.append(List.of(GateEvent.checkIn(parkedVehicle)));
+
+            assertEquals(2, result.get(0).sequence());
+        }
+    }
+
+    @Test
+    void givenEventsPendingAfterCheckpoint_whenCheckpoint_thenDeleteOnlySegmentsBehindIt() throws IOException {
+        try (GateEventLog gateEventLog = new GateEventLog(directory, 100)) {
+            gateEventLog.open();
+            for (int i = 0; i < 10; i++) {
+                gateEventLog.append(List.of(GateEvent.checkIn(parkedVehicle)));
+            }
+            assertEquals(10, segments().size());
+
+            gateEventLog.checkpoint(6);
+
+            assertEquals(4, segments().size());
+        }
+
+        try (GateEventLog gateEventLog = new GateEventLog(directory, 100)) {
+            List<GateEvent> result = gateEventLog.open();
+
+            assertEquals(List.of(7L, 8L, 9L, 10L), result.stream().map(GateEvent::sequence).toList());
+            assertEquals(10, gateEventLog.lastSequence());
+        }
+    }
+
+    @Test
+    void givenRecordWithoutFacility_whenDecode_thenUseDefaultFacility() throws IOException {
+        GateEvent result = GateEventLog.decode(payloadWithoutFacility(1));
+
+        assertEquals("MAIN", result.facility());
+        assertEquals("123", result.licensePlate());
+    }
+
+    @Test
+    void givenLogWithRecordsWithoutFacility_whenAppendAndReopen_thenReplayAllEvents() throws IOException {
+        ByteBuffer records = ByteBuffer.allocate(512);
+        for (long sequence = 1; sequence <= 2; sequence++) {
+            byte[] payload = payloadWithoutFacility(sequence);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            records.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        }
+        Files.write(directory.resolve("gate-events.log"), Arrays.copyOf(records.array(), records.position()));
+
+        try (GateEventLog gateEventLog = new GateEventLog(directory)) {
+            assertEquals(2, gateEventLog.open().size());
+            gateEventLog.append(List.of(GateEvent.checkIn(parkedVehicle)));
+        }
+
+        try (GateEventLog gateEventLog = new GateEventLog(directory)) {
+            List<GateEvent> result = gateEventLog.open();
+
+            assertEquals(List.of(1L, 2L, 3L), result.stream().map(GateEvent::sequence).toList());
+            assertEquals("NORTH", result.get(2).facility());
+        }
+    }
+
+    // A record as written before facilities were introduced
+    private static byte[] payloadWithoutFacility(long sequence) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sequence);
+            out.writeByte(0);
+            out.writeLong(1L);
+            out.writeUTF("123");
+            out.writeByte(VehicleEnum.OFFICIAL.ordinal());
+            out.writeLong(1_000);
+            out.writeLong(-1);
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("gate-events-")).sorted().toList();
+        }
+    }
+
+}
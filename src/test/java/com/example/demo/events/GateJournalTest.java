@@ -0,0 +1,126 @@
+package com.example.demo.events;
+
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.projections.ParkedVehicle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GateJournalTest {
+
+    @TempDir
+    Path directory;
+
+    ParkedVehicle resident = new ParkedVehicle(1L, "123", VehicleEnum.RESIDENT, Instant.ofEpochMilli(1_000), "MAIN");
+    ParkedVehicle official = new ParkedVehicle(2L, "456", VehicleEnum.OFFICIAL, Instant.ofEpochMilli(2_000), "NORTH");
+
+    @Test
+    void givenSnapshotAndLaterEvents_whenRecover_thenReturnSnapshotAndTail() throws IOException {
+        try (GateJournal gateJournal = open(4096 * 4)) {
+            gateJournal.append(List.of(GateEvent.checkIn(resident), GateEvent.checkIn(official)));
+            gateJournal.snapshot(2, List.of(resident, official));
+            gateJournal.append(List.of(GateEvent.checkOut(official, Instant.ofEpochMilli(62_000))));
+        }
+
+        try (GateJournal gateJournal = open(4096 * 4)) {
+            GateJournal.Recovery result = gateJournal.recover().orElseThrow();
+
+            assertEquals(2, result.sequence());
+            assertEquals(List.of(resident, official), result.parkedVehicles());
+            assertEquals(List.of(GateEvent.checkOut(official, Instant.ofEpochMilli(62_000)).withSequence(3)),
+                    result.tail());
+            assertEquals(3, gateJournal.lastSequence());
+        }
+    }
+
+    @Test
+    void givenFullSegments_whenAppend_thenRollAndReplayInOrder() throws IOException {
+        try (GateJournal gateJournal = open(4200)) {
+            for (int i = 0; i < 200; i++) {
+                gateJournal.append(List.of(GateEvent.checkIn(resident)));
+            }
+
+            List<GateEvent> result = new ArrayList<>();
+            gateJournal.replay(1, result::add);
+
+            assertTrue(segments().size() > 1);
+            assertEquals(200, result.size());
+            for (int i = 0; i < result.size(); i++) {
+                assertEquals(i + 1, result.get(i).sequence());
+            }
+        }
+    }
+
+    @Test
+    void givenTornTail_whenReopen_thenIgnoreIncompleteRecordAndContinueSequence() throws IOException {
+        try (GateJournal gateJournal = open(4096 * 4)) {
+            gateJournal.snapshot(0, List.of());
+            gateJournal.append(List.of(GateEvent.checkIn(resident)));
+        }
+        int validEnd = 8 + GateEventLog.encode(GateEvent.checkIn(resident).withSequence(1)).length;
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 5, 6}), validEnd);
+        }
+
+        try (GateJournal gateJournal = open(4096 * 4)) {
+            assertEquals(1, gateJournal.lastSequence());
+            gateJournal.append(List.of(GateEvent.checkIn(official)));
+        }
+
+        try (GateJournal gateJournal = open(4096 * 4)) {
+            List<GateEvent> result = gateJournal.recover().orElseThrow().tail();
+
+            assertEquals(List.of(GateEvent.checkIn(resident).withSequence(1),
+                    GateEvent.checkIn(official).withSequence(2)), result);
+        }
+    }
+
+    @Test
+    void givenMissingSegment_whenRecover_thenReturnEmpty() throws IOException {
+        try (GateJournal gateJournal = open(4200)) {
+            gateJournal.snapshot(0, List.of());
+            for (int i = 0; i < 200; i++) {
+                gateJournal.append(List.of(GateEvent.checkIn(resident)));
+            }
+        }
+        Files.delete(segments().get(1));
+
+        try (GateJournal gateJournal = open(4200)) {
+            assertTrue(gateJournal.recover().isEmpty());
+        }
+    }
+
+    @Test
+    void givenNoSnapshot_whenRecover_thenReturnEmpty() throws IOException {
+        try (GateJournal gateJournal = open(4096 * 4)) {
+            gateJournal.append(List.of(GateEvent.checkIn(resident)));
+
+            assertTrue(gateJournal.recover().isEmpty());
+        }
+    }
+
+    private GateJournal open(int segmentSize) throws IOException {
+        GateJournal gateJournal = new GateJournal(directory, segmentSize, 16);
+        gateJournal.open();
+        return gateJournal;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+}
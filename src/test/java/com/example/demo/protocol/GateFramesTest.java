@@ -0,0 +1,68 @@
+package com.example.demo.protocol;
+
+import com.example.demo.enums.GateCommandType;
+import com.example.demo.enums.GateReplyStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GateFramesTest {
+
+    @Test
+    void givenCommand_whenWriteAndRead_thenRoundTrip() throws IOException {
+        GateCommand command = new GateCommand(42L, GateCommandType.CHECK_OUT_NON_RESIDENT, "ABC-1234");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GateFrames.writeCommand(new DataOutputStream(bytes), command);
+
+        assertEquals(command, GateFrames.readCommand(input(bytes)));
+    }
+
+    @Test
+    void givenRepliesWithAndWithoutFee_whenWriteAndRead_thenRoundTrip() throws IOException {
+        GateReply checkedIn = new GateReply(1L, GateReplyStatus.CHECKED_IN, null);
+        GateReply checkedOut = new GateReply(2L, GateReplyStatus.CHECKED_OUT, new BigDecimal("0.750"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        GateFrames.writeReply(out, checkedIn);
+        GateFrames.writeReply(out, checkedOut);
+
+        DataInputStream in = input(bytes);
+        assertEquals(checkedIn, GateFrames.readReply(in));
+        assertEquals(checkedOut, GateFrames.readReply(in));
+        assertNull(GateFrames.readReply(in));
+        assertEquals((4 + 9) + (4 + 17), bytes.size());
+    }
+
+    @Test
+    void givenUnknownCommandType_whenReadCommand_thenDecodeWithoutType() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(8 + 1 + 2 + 3);
+        out.writeLong(7L);
+        out.writeByte(99);
+        out.writeUTF("ABC");
+
+        GateCommand command = GateFrames.readCommand(input(bytes));
+
+        assertEquals(7L, command.correlationId());
+        assertNull(command.type());
+    }
+
+    @Test
+    void givenOversizedFrame_whenReadCommand_thenThrowIOException() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeInt(GateFrames.MAX_FRAME_SIZE + 1);
+
+        assertThrows(IOException.class, () -> GateFrames.readCommand(input(bytes)));
+    }
+
+    private static DataInputStream input(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+}
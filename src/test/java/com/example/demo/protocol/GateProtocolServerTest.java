@@ -0,0 +1,97 @@
+package com.example.demo.protocol;
+
+import com.example.demo.ApplicationConfigTest;
+import com.example.demo.enums.GateCommandType;
+import com.example.demo.enums.GateReplyStatus;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.services.VehicleService;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@TestPropertySource(properties = {"vehicle.gate.protocol.enabled=true", "vehicle.gate.protocol.port=0",
+        "vehicle.gate.protocol.facility=NORTH", "vehicle.gate.protocol.max-in-flight=2"})
+class GateProtocolServerTest extends ApplicationConfigTest {
+
+    @Autowired
+    private GateProtocolServer gateProtocolServer;
+
+    @MockBean
+    private VehicleService vehicleService;
+
+    @Test
+    void givenPipelinedCommands_whenSend_thenReplyToEachCorrelationId() throws IOException {
+        when(vehicleService.checkOutNonResident("NORTH", "789")).thenReturn(new BigDecimal("0.750"));
+        doThrow(new ResourceNotFoundException("vehicle", "999")).when(vehicleService).checkIn("NORTH", "999");
+        doThrow(new IllegalStateException("Entry or exit time not set")).when(vehicleService).checkOutResident("NORTH", "456");
+
+        Map<Long, GateReply> replies = send(
+                new GateCommand(1L, GateCommandType.CHECK_IN, "123"),
+                new GateCommand(2L, GateCommandType.CHECK_IN, "999"),
+                new GateCommand(3L, GateCommandType.CHECK_OUT_RESIDENT, "456"),
+                new GateCommand(4L, GateCommandType.CHECK_OUT_NON_RESIDENT, "789"));
+
+        assertEquals(GateReplyStatus.CHECKED_IN, replies.get(1L).status());
+        assertEquals(GateReplyStatus.NOT_FOUND, replies.get(2L).status());
+        assertEquals(GateReplyStatus.NOT_PARKED, replies.get(3L).status());
+        assertEquals(GateReplyStatus.CHECKED_OUT, replies.get(4L).status());
+        assertEquals(new BigDecimal("0.750"), replies.get(4L).parkingFee());
+    }
+
+    @Test
+    void givenCommandsForSamePlate_whenPipelined_thenRunInArrivalOrder() throws IOException {
+        send(new GateCommand(1L, GateCommandType.CHECK_IN, "123"),
+                new GateCommand(2L, GateCommandType.CHECK_OUT_OFFICIAL, "123"));
+
+        InOrder inOrder = inOrder(vehicleService);
+        inOrder.verify(vehicleService).checkIn("NORTH", "123");
+        inOrder.verify(vehicleService).checkOutOfficial("NORTH", "123");
+    }
+
+    @Test
+    void givenHandlerThrowingError_whenPipelined_thenReplyErrorAndKeepRunningCommandsOfPlate() throws IOException {
+        doThrow(new AssertionError("unmapped")).when(vehicleService).checkIn("NORTH", "123");
+
+        Map<Long, GateReply> replies = send(
+                new GateCommand(1L, GateCommandType.CHECK_IN, "123"),
+                new GateCommand(2L, GateCommandType.CHECK_IN, "123"),
+                new GateCommand(3L, GateCommandType.CHECK_IN, "123"),
+                new GateCommand(4L, GateCommandType.CHECK_OUT_OFFICIAL, "123"));
+
+        assertEquals(GateReplyStatus.ERROR, replies.get(1L).status());
+        assertEquals(GateReplyStatus.ERROR, replies.get(2L).status());
+        assertEquals(GateReplyStatus.ERROR, replies.get(3L).status());
+        assertEquals(GateReplyStatus.CHECKED_OUT, replies.get(4L).status());
+    }
+
+    private Map<Long, GateReply> send(GateCommand... commands) throws IOException {
+        try (Socket socket = new Socket("localhost", gateProtocolServer.port())) {
+            socket.setSoTimeout(10_000);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            for (GateCommand command : commands) {
+                GateFrames.writeCommand(out, command);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            Map<Long, GateReply> replies = new HashMap<>();
+            for (int i = 0; i < commands.length; i++) {
+                GateReply reply = GateFrames.readReply(in);
+                replies.put(reply.correlationId(), reply);
+            }
+            return replies;
+        }
+    }
+
+}
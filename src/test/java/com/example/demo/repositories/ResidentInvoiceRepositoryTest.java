@@ -0,0 +1,145 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.ResidentInvoice;
+import com.example.demo.entities.ResidentVehicle;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.events.GateEvent;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.projections.ResidentPayment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(ResidentInvoiceBatchRepository.class)
+class ResidentInvoiceRepositoryTest {
+
+    @Autowired
+    private ResidentInvoiceRepository residentInvoiceRepository;
+
+    @Autowired
+    private ResidentInvoiceBatchRepository residentInvoiceBatchRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    ResidentVehicle residentVehicle = new ResidentVehicle("123");
+    ResidentVehicle otherResidentVehicle = new ResidentVehicle("456");
+    ResidentVehicle northResidentVehicle = new ResidentVehicle("789");
+    LocalDate june = LocalDate.of(2023, 6, 1);
+    LocalDate july = LocalDate.of(2023, 7, 1);
+
+    @BeforeEach
+    void setUp() {
+        northResidentVehicle.setFacility("NORTH");
+        vehicleRepository.saveAllAndFlush(List.of(residentVehicle, otherResidentVehicle, northResidentVehicle));
+    }
+
+    @Test
+    void givenStaysInSameMonth_whenAddStays_thenAccumulateOnOneInvoice() {
+        List<GateEvent> firstUnbilled = residentInvoiceBatchRepository.addStays(List.of(
+                checkOut(residentVehicle, "2023-06-10T08:00:00Z", 60000),
+                checkOut(otherResidentVehicle, "2023-06-10T08:00:00Z", 30000)));
+        List<GateEvent> secondUnbilled = residentInvoiceBatchRepository.addStays(List.of(
+                checkOut(residentVehicle, "2023-06-20T08:00:00Z", 90000)));
+        entityManager.clear();
+
+        assertTrue(firstUnbilled.isEmpty());
+        assertTrue(secondUnbilled.isEmpty());
+        assertEquals(List.of(new ResidentPayment("123", 150000L), new ResidentPayment("456", 30000L)),
+                residentInvoiceRepository.findPayments("MAIN", june));
+    }
+
+    @Test
+    void givenStayEndingInNextMonth_whenAddStays_thenOpenInvoiceOfExitMonth() {
+        residentInvoiceBatchRepository.addStays(List.of(checkOut(residentVehicle, "2023-06-30T23:00:00Z", 60000)));
+        residentInvoiceBatchRepository.addStays(List.of(checkOut(residentVehicle, "2023-07-01T01:00:00Z", 90000)));
+        entityManager.clear();
+
+        assertEquals(List.of(new ResidentPayment("123", 60000L)), residentInvoiceRepository.findPayments("MAIN", june));
+        assertEquals(List.of(new ResidentPayment("123", 90000L)), residentInvoiceRepository.findPayments("MAIN", july));
+    }
+
+    @Test
+    void givenClosedInvoice_whenAddStays_thenReturnStayAsUnbilledAndKeepFee() {
+        residentInvoiceBatchRepository.addStays(List.of(checkOut(residentVehicle, "2023-06-10T08:00:00Z", 60000)));
+        entityManager.clear();
+        residentInvoiceRepository.findByFacilityAndClosedFalseAndBillingMonthBefore("MAIN", july).forEach(ResidentInvoice::close);
+        entityManager.flush();
+        GateEvent lateCheckOut = checkOut(residentVehicle, "2023-06-30T08:00:00Z", 90000);
+
+        List<GateEvent> unbilled = residentInvoiceBatchRepository.addStays(List.of(lateCheckOut));
+        entityManager.clear();
+
+        assertEquals(List.of(lateCheckOut), unbilled);
+        ResidentInvoice invoice = residentInvoiceRepository
+                .findById(new ResidentInvoice.Key(residentVehicle.getId(), june)).orElseThrow();
+        assertTrue(invoice.isClosed());
+        assertEquals(60000L, invoice.getAccumulatedTime());
+        assertEquals(0, ResidentVehicle.calculateParkingFee(60000L).compareTo(invoice.getFee()));
+    }
+
+    @Test
+    void givenStayInClosedMonth_whenAddLateStays_thenBillToOpenMonth() {
+        residentInvoiceBatchRepository.addStays(List.of(checkOut(residentVehicle, "2023-06-10T08:00:00Z", 60000),
+                checkOut(residentVehicle, "2023-07-01T00:05:00Z", 30000)));
+        entityManager.clear();
+        residentInvoiceRepository.findByFacilityAndClosedFalseAndBillingMonthBefore("MAIN", july).forEach(ResidentInvoice::close);
+        entityManager.flush();
+        GateEvent lateCheckOut = checkOut(residentVehicle, "2023-06-30T23:55:00Z", 90000);
+
+        List<GateEvent> unbilled = residentInvoiceBatchRepository.addLateStays(
+                residentInvoiceBatchRepository.addStays(List.of(lateCheckOut)), july);
+        entityManager.clear();
+
+        assertTrue(unbilled.isEmpty());
+        assertEquals(60000L, residentInvoiceRepository
+                .findById(new ResidentInvoice.Key(residentVehicle.getId(), june)).orElseThrow().getAccumulatedTime());
+        assertEquals(List.of(new ResidentPayment("123", 120000L)), residentInvoiceRepository.findPayments("MAIN", july));
+    }
+
+    @Test
+    void givenCursor_whenFindPaymentsAfter_thenReturnNextPageOfMonth() {
+        residentInvoiceBatchRepository.addStays(List.of(
+                checkOut(residentVehicle, "2023-06-10T08:00:00Z", 60000),
+                checkOut(otherResidentVehicle, "2023-06-10T08:00:00Z", 30000)));
+        entityManager.clear();
+
+        List<ResidentPayment> result = residentInvoiceRepository.findPaymentsAfter("MAIN", june, "123", PageRequest.of(0, 10));
+
+        assertEquals(List.of(new ResidentPayment("456", 30000L)), result);
+    }
+
+    @Test
+    void givenStaysAtTwoFacilities_whenFindPayments_thenReturnInvoicesOfFacility() {
+        residentInvoiceBatchRepository.addStays(List.of(
+                checkOut(residentVehicle, "2023-06-10T08:00:00Z", 60000),
+                checkOut(northResidentVehicle, "2023-06-10T08:00:00Z", 30000)));
+        entityManager.clear();
+
+        assertEquals(List.of(new ResidentPayment("123", 60000L)), residentInvoiceRepository.findPayments("MAIN", june));
+        assertEquals(List.of(new ResidentPayment("789", 30000L)), residentInvoiceRepository.findPayments("NORTH", june));
+        assertEquals(1, residentInvoiceRepository.findByFacilityAndClosedFalseAndBillingMonthBefore("NORTH", july).size());
+    }
+
+    private static GateEvent checkOut(ResidentVehicle residentVehicle, String exitTime, long durationOfStay) {
+        Instant exit = Instant.parse(exitTime);
+        return GateEvent.checkOut(new ParkedVehicle(residentVehicle.getId(), residentVehicle.getPlateKey(),
+                VehicleEnum.RESIDENT, exit.minusMillis(durationOfStay), residentVehicle.getFacility()), exit);
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.OfficialVehicle;
+import com.example.demo.entities.Stay;
+import com.example.demo.projections.OfficialVehicleUsage;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@DataJpaTest
+class StayRepositoryTest {
+
+    @Autowired
+    private StayRepository stayRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    OfficialVehicle officialVehicle = new OfficialVehicle("123");
+    Instant entryTime = Instant.ofEpochMilli(0);
+    Instant exitTime = Instant.ofEpochMilli(60000);
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository.save(officialVehicle);
+        stayRepository.save(Stay.of(officialVehicle, "MAIN", entryTime, exitTime));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void givenOfficialVehicleWithStays_whenSaveStay_thenInsertWithoutLoadingStayList() {
+        OfficialVehicle vehicle = entityManager.find(OfficialVehicle.class, officialVehicle.getId());
+
+        stayRepository.save(Stay.of(vehicle, "MAIN", entryTime, exitTime));
+        entityManager.flush();
+
+        assertFalse(Hibernate.isInitialized(vehicle.getStayList()));
+        assertEquals(2, stayRepository.count());
+    }
+
+    @Test
+    void givenStaysInPeriod_whenFindOfficialVehicleUsage_thenAggregatePerVehicle() {
+        OfficialVehicle vehicle = entityManager.find(OfficialVehicle.class, officialVehicle.getId());
+        stayRepository.save(Stay.of(vehicle, "MAIN", Instant.ofEpochMilli(120000), Instant.ofEpochMilli(300000)));
+        stayRepository.save(Stay.of(vehicle, "MAIN", Instant.ofEpochMilli(600000), Instant.ofEpochMilli(660000)));
+
+        List<OfficialVehicleUsage> result = stayRepository.findOfficialVehicleUsage
+                ("MAIN", entryTime, Instant.ofEpochMilli(600000));
+
+        assertEquals(1, result.size());
+        assertEquals(officialVehicle.getLicensePlate(), result.get(0).licensePlate());
+        assertEquals(2, result.get(0).stayCount());
+        assertEquals(0, new BigDecimal("4.00").compareTo(result.get(0).totalDurationOfStay()));
+        assertEquals(new BigDecimal("2.00"), result.get(0).averageDurationOfStay());
+        assertEquals(entryTime, result.get(0).firstEntry());
+        assertEquals(Instant.ofEpochMilli(120000), result.get(0).lastEntry());
+    }
+
+    @Test
+    void givenNoStaysInPeriod_whenFindOfficialVehicleUsage_thenReturnEmptyList() {
+        List<OfficialVehicleUsage> result = stayRepository.findOfficialVehicleUsage
+                ("MAIN", exitTime, Instant.ofEpochMilli(120000));
+        assertEquals(Collections.emptyList(), result);
+    }
+
+    @Test
+    void givenStaysAtAnotherFacility_whenFindOfficialVehicleUsage_thenReturnEmptyList() {
+        List<OfficialVehicleUsage> result = stayRepository.findOfficialVehicleUsage
+                ("NORTH", entryTime, Instant.ofEpochMilli(600000));
+        assertEquals(Collections.emptyList(), result);
+    }
+
+}
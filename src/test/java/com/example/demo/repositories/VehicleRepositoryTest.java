@@ -4,14 +4,21 @@ import com.example.demo.dtos.VehicleDTO;
 import com.example.demo.entities.ResidentVehicle;
 import com.example.demo.entities.Vehicle;
 import com.example.demo.enums.VehicleEnum;
+import com.example.demo.projections.OccupancyCount;
+import com.example.demo.projections.ParkedChecksum;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.projections.VehicleSearchResult;
 import com.example.demo.utils.TestDataBuilder;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.Instant;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +31,7 @@ class VehicleRepositoryTest {
     private VehicleRepository vehicleRepository;
 
     Vehicle vehicle = TestDataBuilder.buildVehicleNoId(VehicleEnum.RESIDENT, "123");
+    Instant entryTime = Instant.ofEpochMilli(60000);
 
     @BeforeEach
     void setUp() {
@@ -47,6 +55,31 @@ class VehicleRepositoryTest {
         assertEquals(Optional.empty(), result);
     }
 
+    @Test
+    void givenPlateReadWithSeparators_whenFindByLicensePlate_thenReturnOptionalVehicle() {
+        Optional<Vehicle> result = vehicleRepository.findByLicensePlate(" 1-2 3");
+        assertEquals(Optional.of(vehicle), result);
+    }
+
+    @Test
+    void givenVehicles_whenSearchByPlateKeyPrefix_thenReturnPagesInPlateKeyOrder() {
+        vehicleRepository.save(TestDataBuilder.buildVehicleNoId(VehicleEnum.OFFICIAL, "abc-124"));
+        vehicleRepository.save(TestDataBuilder.buildVehicleNoId(VehicleEnum.RESIDENT, "ABC 123"));
+        vehicleRepository.save(TestDataBuilder.buildVehicleNoId(VehicleEnum.RESIDENT, "ABD123"));
+        Vehicle northVehicle = TestDataBuilder.buildVehicleNoId(VehicleEnum.RESIDENT, "ABC122");
+        northVehicle.setFacility("NORTH");
+        vehicleRepository.save(northVehicle);
+
+        List<VehicleSearchResult> firstPage = vehicleRepository.searchByPlateKeyPrefix("MAIN", "ABC", "", PageRequest.of(0, 1));
+        List<VehicleSearchResult> secondPage = vehicleRepository.searchByPlateKeyPrefix
+                ("MAIN", "ABC", firstPage.get(0).plateKey(), PageRequest.of(0, 1));
+
+        assertEquals(List.of("ABC123"), firstPage.stream().map(VehicleSearchResult::plateKey).toList());
+        assertEquals("ABC 123", firstPage.get(0).licensePlate());
+        assertEquals(List.of("ABC124"), secondPage.stream().map(VehicleSearchResult::plateKey).toList());
+        assertEquals(VehicleEnum.OFFICIAL, secondPage.get(0).vehicleEnum());
+    }
+
     @Test
     void givenResidentVehicles_whenFindAllResidentVehicle_thenReturnListOfResidentVehicles() {
         List<Vehicle> expectedResult = Collections.singletonList(vehicle);
@@ -54,4 +87,66 @@ class VehicleRepositoryTest {
         assertEquals(expectedResult, result);
     }
 
+    @Test
+    void givenParkedVehicle_whenFindAllParked_thenReturnParkedVehicles() {
+        vehicle.setEntryTimeCurrentTime();
+        vehicleRepository.save(vehicle);
+
+        List<ParkedVehicle> result = vehicleRepository.findAllParked();
+
+        assertEquals(1, result.size());
+        assertEquals(vehicle.getLicensePlate(), result.get(0).licensePlate());
+        assertEquals(vehicle.getEntryTime(), result.get(0).entryTime());
+    }
+
+    @Test
+    void givenParkedVehiclesAtTwoFacilities_whenCountParked_thenCountPerFacility() {
+        Vehicle northVehicle = TestDataBuilder.buildVehicleNoId(VehicleEnum.RESIDENT, "456");
+        northVehicle.setFacility("NORTH");
+        vehicleRepository.save(northVehicle);
+        vehicleRepository.updateEntryTime(vehicle.getId(), entryTime);
+        vehicleRepository.updateEntryTime(northVehicle.getId(), entryTime);
+
+        List<OccupancyCount> result = vehicleRepository.countParkedByFacilityAndVehicleEnum();
+
+        assertEquals(List.of(new OccupancyCount("MAIN", VehicleEnum.RESIDENT, 1L),
+                new OccupancyCount("NORTH", VehicleEnum.RESIDENT, 1L)),
+                result.stream().sorted(Comparator.comparing(OccupancyCount::facility)).toList());
+    }
+
+    @Test
+    void givenParkedVehicles_whenChecksumParked_thenSumTermOfEachVehicle() {
+        Vehicle otherVehicle = TestDataBuilder.buildVehicleNoId(VehicleEnum.RESIDENT, "456");
+        vehicleRepository.save(otherVehicle);
+        Instant otherEntryTime = Instant.ofEpochMilli(1_700_000_000_000L);
+        vehicleRepository.updateEntryTime(vehicle.getId(), entryTime);
+        vehicleRepository.updateEntryTime(otherVehicle.getId(), otherEntryTime);
+
+        List<ParkedChecksum> result = vehicleRepository.checksumParkedByFacilityAndVehicleEnum();
+
+        assertEquals(List.of(new ParkedChecksum("MAIN", VehicleEnum.RESIDENT, 2L,
+                ParkedChecksum.term(vehicle.getId(), entryTime) + ParkedChecksum.term(otherVehicle.getId(), otherEntryTime))),
+                result);
+    }
+
+    @Test
+    void givenNoParkedVehicle_whenFindAllParked_thenReturnEmptyList() {
+        List<ParkedVehicle> result = vehicleRepository.findAllParked();
+        assertEquals(Collections.emptyList(), result);
+    }
+
+    @Test
+    void givenParkedVehicle_whenUpdateEntryTimeAgain_thenAffectNoRows() {
+        assertEquals(1, vehicleRepository.updateEntryTime(vehicle.getId(), entryTime));
+        assertEquals(0, vehicleRepository.updateEntryTime(vehicle.getId(), entryTime.plusSeconds(60)));
+    }
+
+    @Test
+    void givenParkedVehicle_whenClearTimesForOtherEntryTime_thenAffectNoRows() {
+        vehicleRepository.updateEntryTime(vehicle.getId(), entryTime);
+
+        assertEquals(0, vehicleRepository.clearTimes(vehicle.getId(), entryTime.plusSeconds(60)));
+        assertEquals(1, vehicleRepository.clearTimes(vehicle.getId(), entryTime));
+    }
+
 }
\ No newline at end of file
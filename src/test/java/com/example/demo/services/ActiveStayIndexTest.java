@@ -0,0 +1,80 @@
+package com.example.demo.services;
+
+import com.example.demo.ApplicationConfigTest;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.events.GateEvent;
+import com.example.demo.projections.ParkedChecksum;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.repositories.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@TestPropertySource(properties = "vehicle.journal.enabled=true")
+class ActiveStayIndexTest extends ApplicationConfigTest {
+
+    @TempDir
+    static Path journalDirectory;
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) {
+        registry.add("vehicle.journal.directory", journalDirectory::toString);
+    }
+
+    @Autowired
+    private ActiveStayIndex activeStayIndex;
+
+    @MockBean
+    private VehicleRepository vehicleRepository;
+
+    ParkedVehicle resident = new ParkedVehicle(1L, "123", VehicleEnum.RESIDENT, Instant.ofEpochMilli(60_000), "MAIN");
+    ParkedVehicle otherResident = new ParkedVehicle(4L, "321", VehicleEnum.RESIDENT, Instant.ofEpochMilli(120_000), "MAIN");
+
+    @BeforeEach
+    void setUp() {
+        activeStayIndex.clear();
+        activeStayIndex.record(List.of(GateEvent.checkIn(resident)));
+        activeStayIndex.snapshot();
+        clearInvocations(vehicleRepository);
+    }
+
+    @Test
+    void givenJournalMatchingDatabase_whenRestore_thenKeepJournaledVehicles() {
+        when(vehicleRepository.checksumParkedByFacilityAndVehicleEnum()).thenReturn(List.of(checksum(resident)));
+
+        activeStayIndex.restore();
+
+        assertEquals(Optional.of(resident), activeStayIndex.find("123"));
+        verify(vehicleRepository, never()).findAllParked();
+    }
+
+    @Test
+    void givenJournalWithOtherVehicleOfSameType_whenRestore_thenRebuildFromDatabase() {
+        when(vehicleRepository.checksumParkedByFacilityAndVehicleEnum()).thenReturn(List.of(checksum(otherResident)));
+        when(vehicleRepository.findAllParked()).thenReturn(List.of(otherResident));
+
+        activeStayIndex.restore();
+
+        assertEquals(Optional.empty(), activeStayIndex.find("123"));
+        assertEquals(Optional.of(otherResident), activeStayIndex.find("321"));
+    }
+
+    private static ParkedChecksum checksum(ParkedVehicle parkedVehicle) {
+        return new ParkedChecksum(parkedVehicle.facility(), parkedVehicle.vehicleEnum(), 1L,
+                ParkedChecksum.term(parkedVehicle.vehicleId(), parkedVehicle.entryTime()));
+    }
+
+}
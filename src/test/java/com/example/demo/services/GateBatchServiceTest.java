@@ -0,0 +1,153 @@
+package com.example.demo.services;
+
+import com.example.demo.ApplicationConfigTest;
+import com.example.demo.dtos.GateEventResultDTO;
+import com.example.demo.enums.GateEventStatus;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.events.GateEvent;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.projections.RegisteredVehicle;
+import com.example.demo.repositories.ResidentInvoiceBatchRepository;
+import com.example.demo.repositories.StayRepository;
+import com.example.demo.repositories.VehicleBatchRepository;
+import com.example.demo.repositories.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GateBatchServiceTest extends ApplicationConfigTest {
+
+    @Autowired
+    private GateBatchService gateBatchService;
+
+    @Autowired
+    private ActiveStayIndex activeStayIndex;
+
+    @MockBean
+    private VehicleRepository vehicleRepository;
+
+    @MockBean
+    private VehicleBatchRepository vehicleBatchRepository;
+
+    @MockBean
+    private ResidentInvoiceBatchRepository residentInvoiceBatchRepository;
+
+    @MockBean
+    private StayRepository stayRepository;
+
+    @Autowired
+    private VehicleRegistry vehicleRegistry;
+
+    @BeforeEach
+    void setUp() {
+        activeStayIndex.clear();
+        vehicleRegistry.clear();
+    }
+
+    @Test
+    void givenPlates_whenCheckInBatch_thenBatchUpdateRegisteredVehiclesAndReportEachPlate() {
+        when(vehicleRepository.findRegisteredVehicles(anyCollection())).thenReturn(List.of(
+                new RegisteredVehicle(1L, "123", VehicleEnum.RESIDENT, "MAIN"),
+                new RegisteredVehicle(2L, "456", VehicleEnum.OFFICIAL, "MAIN")));
+
+        List<GateEventResultDTO> result = gateBatchService.checkIn("MAIN", List.of("123", "456", "999", "123"));
+
+        assertEquals(GateEventStatus.CHECKED_IN, result.get(0).getStatus());
+        assertEquals(GateEventStatus.CHECKED_IN, result.get(1).getStatus());
+        assertEquals(GateEventStatus.NOT_FOUND, result.get(2).getStatus());
+        assertEquals(GateEventStatus.ALREADY_PARKED, result.get(3).getStatus());
+        assertTrue(activeStayIndex.isParked("123"));
+        assertTrue(activeStayIndex.isParked("456"));
+
+        verify(vehicleRepository, times(1)).findRegisteredVehicles(anyCollection());
+        verify(vehicleBatchRepository, times(1))
+                .updateEntryTimes(argThat(checkIns -> checkIns.size() == 2));
+    }
+
+    @Test
+    void givenParkedVehicles_whenCheckOutBatch_thenBatchUpdateBillResidentAndReturnNonResidentFee() {
+        Instant entryTime = Instant.now().minusSeconds(60);
+        activeStayIndex.park(new ParkedVehicle(1L, "123", VehicleEnum.RESIDENT, entryTime, "MAIN"));
+        activeStayIndex.park(new ParkedVehicle(3L, "789", VehicleEnum.NON_RESIDENT, entryTime, "MAIN"));
+
+        List<GateEventResultDTO> result = gateBatchService.checkOut("MAIN", List.of("123", "789", "000"));
+
+        assertEquals(GateEventStatus.CHECKED_OUT, result.get(0).getStatus());
+        assertNull(result.get(0).getParkingFee());
+        assertEquals(GateEventStatus.CHECKED_OUT, result.get(1).getStatus());
+        assertNotNull(result.get(1).getParkingFee());
+        assertEquals(GateEventStatus.NOT_FOUND, result.get(2).getStatus());
+        assertEquals(0, activeStayIndex.size());
+
+        verify(vehicleBatchRepository, times(1)).clearTimes(argThat(checkOuts -> checkOuts.size() == 2));
+        verify(residentInvoiceBatchRepository, times(1)).addStays(argThat(checkOuts ->
+                checkOuts.size() == 1 && checkOuts.get(0).vehicleId() == 1L));
+    }
+
+    @Test
+    void givenCheckInRejectedByDatabase_whenCheckInBatch_thenReportAlreadyParked() {
+        Instant entryTime = Instant.ofEpochMilli(0);
+        when(vehicleRepository.findRegisteredVehicles(anyCollection())).thenReturn(List.of(
+                new RegisteredVehicle(1L, "123", VehicleEnum.RESIDENT, "MAIN"),
+                new RegisteredVehicle(2L, "456", VehicleEnum.OFFICIAL, "MAIN")));
+        when(vehicleBatchRepository.updateEntryTimes(anyList())).thenAnswer(invocation -> {
+            List<GateEvent> checkIns = invocation.getArgument(0);
+            return checkIns.stream().filter(checkIn -> checkIn.licensePlate().equals("456")).toList();
+        });
+        when(vehicleRepository.findParkedVehicle("456"))
+                .thenReturn(Optional.of(new ParkedVehicle(2L, "456", VehicleEnum.OFFICIAL, entryTime, "MAIN")));
+
+        List<GateEventResultDTO> result = gateBatchService.checkIn("MAIN", List.of("123", "456"));
+
+        assertEquals(GateEventStatus.CHECKED_IN, result.get(0).getStatus());
+        assertEquals(GateEventStatus.ALREADY_PARKED, result.get(1).getStatus());
+        assertNull(result.get(1).getVehicleEnum());
+        assertEquals(entryTime, activeStayIndex.find("456").orElseThrow().entryTime());
+    }
+
+    @Test
+    void givenOfficialCheckOutRejectedByDatabase_whenCheckOutBatch_thenReportNotParkedAndSkipStay() {
+        Instant entryTime = Instant.now().minusSeconds(60);
+        activeStayIndex.park(new ParkedVehicle(2L, "456", VehicleEnum.OFFICIAL, entryTime, "MAIN"));
+        activeStayIndex.park(new ParkedVehicle(3L, "789", VehicleEnum.NON_RESIDENT, entryTime, "MAIN"));
+        when(vehicleBatchRepository.clearTimes(anyList())).thenAnswer(invocation -> {
+            List<GateEvent> checkOuts = invocation.getArgument(0);
+            return checkOuts.stream().filter(checkOut -> checkOut.licensePlate().equals("456")).toList();
+        });
+
+        List<GateEventResultDTO> result = gateBatchService.checkOut("MAIN", List.of("456", "789"));
+
+        assertEquals(GateEventStatus.NOT_PARKED, result.get(0).getStatus());
+        assertEquals(GateEventStatus.CHECKED_OUT, result.get(1).getStatus());
+        assertEquals(0, activeStayIndex.size());
+
+        verify(stayRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void givenVehiclesOfAnotherFacility_whenCheckInAndCheckOutBatch_thenReportNotFound() {
+        Instant entryTime = Instant.now().minusSeconds(60);
+        activeStayIndex.park(new ParkedVehicle(3L, "789", VehicleEnum.NON_RESIDENT, entryTime, "NORTH"));
+        when(vehicleRepository.findRegisteredVehicles(anyCollection())).thenReturn(List.of(
+                new RegisteredVehicle(1L, "123", VehicleEnum.RESIDENT, "NORTH")));
+
+        List<GateEventResultDTO> checkIns = gateBatchService.checkIn("MAIN", List.of("123", "789"));
+        List<GateEventResultDTO> checkOuts = gateBatchService.checkOut("MAIN", List.of("789"));
+
+        assertEquals(GateEventStatus.NOT_FOUND, checkIns.get(0).getStatus());
+        assertEquals(GateEventStatus.NOT_FOUND, checkIns.get(1).getStatus());
+        assertEquals(GateEventStatus.NOT_FOUND, checkOuts.get(0).getStatus());
+        assertTrue(activeStayIndex.isParked("789"));
+        assertFalse(activeStayIndex.isParked("123"));
+        verifyNoInteractions(vehicleBatchRepository);
+    }
+
+}
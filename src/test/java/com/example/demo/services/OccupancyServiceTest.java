@@ -0,0 +1,146 @@
+package com.example.demo.services;
+
+import com.example.demo.ApplicationConfigTest;
+import com.example.demo.dtos.OccupancyDTO;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.projections.OccupancyCount;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.repositories.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class OccupancyServiceTest extends ApplicationConfigTest {
+
+    @Autowired
+    private OccupancyService occupancyService;
+
+    @Autowired
+    private ActiveStayIndex activeStayIndex;
+
+    @MockBean
+    private VehicleRepository vehicleRepository;
+
+    ParkedVehicle resident = new ParkedVehicle(1L, "123", VehicleEnum.RESIDENT, Instant.ofEpochMilli(0), "MAIN");
+    ParkedVehicle official = new ParkedVehicle(2L, "456", VehicleEnum.OFFICIAL, Instant.ofEpochMilli(0), "MAIN");
+    ParkedVehicle northResident = new ParkedVehicle(3L, "789", VehicleEnum.RESIDENT, Instant.ofEpochMilli(0), "NORTH");
+    ParkedVehicle otherResident = new ParkedVehicle(4L, "321", VehicleEnum.RESIDENT, Instant.ofEpochMilli(0), "MAIN");
+
+    @BeforeEach
+    void setUp() {
+        activeStayIndex.clear();
+    }
+
+    @Test
+    void givenParkedVehicles_whenOccupancy_thenCountByVehicleEnum() {
+        activeStayIndex.park(resident);
+        activeStayIndex.park(official);
+        activeStayIndex.leave(official.licensePlate());
+
+        OccupancyDTO result = occupancyService.occupancy(null);
+
+        assertEquals(1, result.getParked().get(VehicleEnum.RESIDENT));
+        assertEquals(0, result.getParked().get(VehicleEnum.OFFICIAL));
+        assertEquals(0, result.getParked().get(VehicleEnum.NON_RESIDENT));
+        assertEquals(1, result.getTotal());
+    }
+
+    @Test
+    void givenVehiclesAtTwoFacilities_whenOccupancy_thenCountEachFacilityOnItsOwn() {
+        activeStayIndex.park(resident);
+        activeStayIndex.park(northResident);
+        activeStayIndex.park(official);
+
+        OccupancyDTO main = occupancyService.occupancy("main");
+        OccupancyDTO north = occupancyService.occupancy("NORTH");
+
+        assertEquals("MAIN", main.getFacility());
+        assertEquals(2, main.getTotal());
+        assertEquals(1, north.getParked().get(VehicleEnum.RESIDENT));
+        assertEquals(1, north.getTotal());
+        assertEquals(0, occupancyService.occupancy("SOUTH").getTotal());
+    }
+
+    @Test
+    void givenVehicleNotParked_whenLeave_thenKeepCounts() {
+        activeStayIndex.park(resident);
+        activeStayIndex.leave("random");
+
+        assertEquals(1, occupancyService.occupancy(null).getTotal());
+    }
+
+    @Test
+    void givenSameDriftTwice_whenReconcile_thenResyncIndexAndCounters() {
+        activeStayIndex.park(resident);
+        when(vehicleRepository.countParkedByFacilityAndVehicleEnum())
+                .thenReturn(List.of(new OccupancyCount("MAIN", VehicleEnum.RESIDENT, 2L)));
+        when(vehicleRepository.findAllParkedByFacility("MAIN")).thenReturn(List.of(resident, otherResident));
+        when(vehicleRepository.findParkedVehicle(otherResident.licensePlate())).thenReturn(Optional.of(otherResident));
+
+        occupancyService.reconcile();
+        assertEquals(1, occupancyService.occupancy(null).getParked().get(VehicleEnum.RESIDENT));
+
+        occupancyService.reconcile();
+        assertEquals(2, occupancyService.occupancy(null).getParked().get(VehicleEnum.RESIDENT));
+        assertTrue(activeStayIndex.isParked(otherResident.licensePlate()));
+    }
+
+    @Test
+    void givenResyncedPlate_whenLeave_thenCountersFollowIndex() {
+        activeStayIndex.park(resident);
+        when(vehicleRepository.countParkedByFacilityAndVehicleEnum())
+                .thenReturn(List.of(new OccupancyCount("MAIN", VehicleEnum.RESIDENT, 2L)));
+        when(vehicleRepository.findAllParkedByFacility("MAIN")).thenReturn(List.of(resident, otherResident));
+        when(vehicleRepository.findParkedVehicle(otherResident.licensePlate())).thenReturn(Optional.of(otherResident));
+        occupancyService.reconcile();
+        occupancyService.reconcile();
+
+        activeStayIndex.leave(otherResident.licensePlate());
+
+        assertEquals(1, occupancyService.occupancy(null).getParked().get(VehicleEnum.RESIDENT));
+    }
+
+    @Test
+    void givenTransientDrift_whenReconcile_thenKeepCounters() {
+        activeStayIndex.park(resident);
+        when(vehicleRepository.countParkedByFacilityAndVehicleEnum())
+                .thenReturn(List.of(new OccupancyCount("MAIN", VehicleEnum.RESIDENT, 2L)))
+                .thenReturn(List.of(new OccupancyCount("MAIN", VehicleEnum.RESIDENT, 1L)));
+
+        occupancyService.reconcile();
+        occupancyService.reconcile();
+
+        assertEquals(1, occupancyService.occupancy(null).getParked().get(VehicleEnum.RESIDENT));
+    }
+
+    @Test
+    void givenDriftAtOneFacility_whenReconcile_thenCorrectOnlyThatFacility() {
+        ParkedVehicle secondNorthResident = new ParkedVehicle(5L, "654", VehicleEnum.RESIDENT, Instant.ofEpochMilli(0), "NORTH");
+        ParkedVehicle thirdNorthResident = new ParkedVehicle(6L, "987", VehicleEnum.RESIDENT, Instant.ofEpochMilli(0), "NORTH");
+        activeStayIndex.park(resident);
+        activeStayIndex.park(northResident);
+        when(vehicleRepository.countParkedByFacilityAndVehicleEnum()).thenReturn(List.of(
+                new OccupancyCount("MAIN", VehicleEnum.RESIDENT, 1L),
+                new OccupancyCount("NORTH", VehicleEnum.RESIDENT, 3L)));
+        when(vehicleRepository.findAllParkedByFacility("NORTH"))
+                .thenReturn(List.of(northResident, secondNorthResident, thirdNorthResident));
+        when(vehicleRepository.findParkedVehicle("654")).thenReturn(Optional.of(secondNorthResident));
+        when(vehicleRepository.findParkedVehicle("987")).thenReturn(Optional.of(thirdNorthResident));
+
+        occupancyService.reconcile();
+        occupancyService.reconcile();
+
+        assertEquals(1, occupancyService.occupancy("MAIN").getTotal());
+        assertEquals(3, occupancyService.occupancy("NORTH").getTotal());
+    }
+
+}
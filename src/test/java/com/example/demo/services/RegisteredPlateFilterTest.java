@@ -0,0 +1,38 @@
+package com.example.demo.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegisteredPlateFilterTest {
+
+    @Test
+    void givenAddedPlates_whenMightContain_thenReturnTrue() {
+        RegisteredPlateFilter filter = new RegisteredPlateFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.add("ABC" + i);
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("ABC" + i));
+        }
+    }
+
+    @Test
+    void givenUnknownPlates_whenMightContain_thenStayNearFalsePositiveRate() {
+        RegisteredPlateFilter filter = new RegisteredPlateFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.add("ABC" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("XYZ" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2000, "false positives: " + falsePositives);
+    }
+
+}
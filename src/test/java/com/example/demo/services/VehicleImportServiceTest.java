@@ -0,0 +1,128 @@
+package com.example.demo.services;
+
+import com.example.demo.ApplicationConfigTest;
+import com.example.demo.dtos.VehicleImportDTO;
+import com.example.demo.dtos.VehicleImportErrorDTO;
+import com.example.demo.entities.Vehicle;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.repositories.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class VehicleImportServiceTest extends ApplicationConfigTest {
+
+    @Autowired
+    private VehicleImportService vehicleImportService;
+
+    @MockBean
+    private VehicleRepository vehicleRepository;
+
+    @BeforeEach
+    void setUp() {
+        when(vehicleRepository.findExistingPlateKeys(anyCollection())).thenReturn(Collections.emptySet());
+    }
+
+    private static InputStream upload(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Vehicle> savedVehicles() {
+        ArgumentCaptor<List<Vehicle>> captor = ArgumentCaptor.forClass(List.class);
+        verify(vehicleRepository, atLeastOnce()).saveAll(captor.capture());
+        return captor.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    @Test
+    void givenValidCsv_whenImportCsv_thenSaveAllVehicles() {
+        VehicleImportDTO result = vehicleImportService.importCsv(upload
+                ("licensePlate,vehicleEnum\n123,RESIDENT\n456,official\n\n789,NON_RESIDENT\n"));
+
+        assertEquals(3, result.getImported());
+        assertEquals(0, result.getRejected());
+        List<Vehicle> saved = savedVehicles();
+        assertEquals(List.of("123", "456", "789"), saved.stream().map(Vehicle::getLicensePlate).toList());
+        assertEquals(VehicleEnum.OFFICIAL, saved.get(1).getVehicleEnum());
+    }
+
+    @Test
+    void givenFacilityColumn_whenImportCsv_thenSaveVehiclesAtFacility() {
+        VehicleImportDTO result = vehicleImportService.importCsv(upload
+                ("licensePlate,vehicleEnum,facility\n123,RESIDENT,north\n456,OFFICIAL,\n"));
+
+        assertEquals(2, result.getImported());
+        assertEquals(List.of("NORTH", "MAIN"), savedVehicles().stream().map(Vehicle::getFacility).toList());
+    }
+
+    @Test
+    void givenInvalidRows_whenImportCsv_thenRejectWithLineNumbers() {
+        VehicleImportDTO result = vehicleImportService.importCsv(upload
+                ("123,RESIDENT\n1,RESIDENT\n456,random\n123,OFFICIAL\nmalformed\n"));
+
+        assertEquals(1, result.getImported());
+        assertEquals(4, result.getRejected());
+        assertEquals(List.of(2L, 3L, 4L, 5L), result.getErrors().stream().map(VehicleImportErrorDTO::getLine).toList());
+        assertEquals("Duplicate license plate in upload", result.getErrors().get(2).getMessage());
+    }
+
+    @Test
+    void givenRegisteredPlate_whenImportNdjson_thenRejectRegisteredPlate() {
+        when(vehicleRepository.findExistingPlateKeys(anyCollection())).thenReturn(Set.of("123"));
+
+        VehicleImportDTO result = vehicleImportService.importNdjson(upload
+                ("{\"licensePlate\":\"123\",\"vehicleEnum\":\"RESIDENT\"}\n"
+                        + "{\"licensePlate\":\"456\",\"vehicleEnum\":\"OFFICIAL\"}\n"));
+
+        assertEquals(1, result.getImported());
+        assertEquals("License plate already registered", result.getErrors().get(0).getMessage());
+        assertEquals(List.of("456"), savedVehicles().stream().map(Vehicle::getLicensePlate).toList());
+    }
+
+    @Test
+    void givenConcurrentRegistration_whenImportCsv_thenRetryWithoutRegisteredPlate() {
+        when(vehicleRepository.findExistingPlateKeys(anyCollection()))
+                .thenReturn(Collections.emptySet())
+                .thenReturn(Set.of("123"));
+        when(vehicleRepository.saveAll(anyList()))
+                .thenThrow(DataIntegrityViolationException.class)
+                .thenReturn(List.of());
+
+        VehicleImportDTO result = vehicleImportService.importCsv(upload("123,RESIDENT\n456,RESIDENT\n"));
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getRejected());
+        verify(vehicleRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void givenMoreErrorsThanLimit_whenReject_thenTruncateErrors() {
+        VehicleImportDTO result = new VehicleImportDTO(1);
+
+        result.reject(1, "1", "first");
+        assertFalse(result.isErrorsTruncated());
+        result.reject(2, "2", "second");
+
+        assertEquals(2, result.getRejected());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.isErrorsTruncated());
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.example.demo.services;
+
+import com.example.demo.ApplicationConfigTest;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.projections.RegisteredVehicle;
+import com.example.demo.repositories.VehicleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@TestPropertySource(properties = {"vehicle.registry.plate-filter.enabled=true",
+        "vehicle.registry.plate-filter.miss-queries-per-second=0.01"})
+class VehicleRegistryMissQueryTest extends ApplicationConfigTest {
+
+    @Autowired
+    private VehicleRegistry vehicleRegistry;
+
+    @MockBean
+    private VehicleRepository vehicleRepository;
+
+    @Test
+    void givenPlateRegisteredElsewhere_whenFindByPlateKey_thenQueryOneMissAndRememberPlate() {
+        vehicleRegistry.clear();
+        when(vehicleRepository.findPlateKeysAfter(eq(""), any(Pageable.class))).thenReturn(List.of("123"));
+        vehicleRegistry.rebuildPlateFilter();
+        RegisteredVehicle elsewhere = new RegisteredVehicle(2L, "456", VehicleEnum.OFFICIAL, "MAIN");
+        when(vehicleRepository.findRegisteredVehicle("456")).thenReturn(Optional.of(elsewhere));
+
+        assertEquals(Optional.of(elsewhere), vehicleRegistry.findByPlateKey("456"));
+        assertEquals(Optional.empty(), vehicleRegistry.findByPlateKey("999"));
+
+        assertTrue(vehicleRegistry.mightBeRegistered("456"));
+        verify(vehicleRepository, never()).findRegisteredVehicle("999");
+    }
+
+}
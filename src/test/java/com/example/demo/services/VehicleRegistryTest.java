@@ -0,0 +1,104 @@
+package com.example.demo.services;
+
+import com.example.demo.ApplicationConfigTest;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.projections.RegisteredVehicle;
+import com.example.demo.repositories.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@TestPropertySource(properties = {"vehicle.registry.plate-filter.enabled=true",
+        "vehicle.registry.plate-filter.miss-queries-per-second=0"})
+class VehicleRegistryTest extends ApplicationConfigTest {
+
+    @Autowired
+    private VehicleRegistry vehicleRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @MockBean
+    private VehicleRepository vehicleRepository;
+
+    RegisteredVehicle registeredVehicle = new RegisteredVehicle(1L, "123", VehicleEnum.RESIDENT, "MAIN");
+
+    @BeforeEach
+    void setUp() {
+        vehicleRegistry.clear();
+        when(vehicleRepository.findPlateKeysAfter(eq(""), any(Pageable.class))).thenReturn(List.of("123"));
+        vehicleRegistry.rebuildPlateFilter();
+        clearInvocations(vehicleRepository);
+    }
+
+    @Test
+    void givenUnknownPlate_whenFindByPlateKey_thenReturnEmptyWithoutQuery() {
+        assertEquals(Optional.empty(), vehicleRegistry.findByPlateKey("999"));
+
+        verify(vehicleRepository, never()).findRegisteredVehicle(any());
+    }
+
+    @Test
+    void givenRegisteredPlate_whenFindByPlateKey_thenQueryRepository() {
+        when(vehicleRepository.findRegisteredVehicle("123")).thenReturn(Optional.of(registeredVehicle));
+
+        assertEquals(Optional.of(registeredVehicle), vehicleRegistry.findByPlateKey("123"));
+
+        verify(vehicleRepository, times(1)).findRegisteredVehicle("123");
+    }
+
+    @Test
+    void givenPlateRegisteredAfterStartup_whenFindByPlateKey_thenQueryRepository() {
+        RegisteredVehicle newVehicle = new RegisteredVehicle(2L, "456", VehicleEnum.OFFICIAL, "MAIN");
+        when(vehicleRepository.findRegisteredVehicle("456")).thenReturn(Optional.of(newVehicle));
+
+        vehicleRegistry.registered("456");
+
+        assertEquals(Optional.of(newVehicle), vehicleRegistry.findByPlateKey("456"));
+    }
+
+    @Test
+    void givenNewVehiclePersisted_whenFindByPlateKey_thenQueryRepositoryAgain() {
+        when(vehicleRepository.findRegisteredVehicle("456")).thenReturn(Optional.empty());
+        assertEquals(Optional.empty(), vehicleRegistry.findByPlateKey("456"));
+        RegisteredVehicle newVehicle = new RegisteredVehicle(2L, "456", VehicleEnum.OFFICIAL, "MAIN");
+        when(vehicleRepository.findRegisteredVehicle("456")).thenReturn(Optional.of(newVehicle));
+
+        applicationEventPublisher.publishEvent(new VehicleChangedEvent("456", true));
+
+        assertEquals(Optional.of(newVehicle), vehicleRegistry.findByPlateKey("456"));
+    }
+
+    @Test
+    void givenUnknownPlates_whenFindAllByPlateKey_thenQueryOnlyPossiblyRegistered() {
+        when(vehicleRepository.findRegisteredVehicles(anyCollection())).thenReturn(List.of(registeredVehicle));
+
+        Map<String, RegisteredVehicle> result = vehicleRegistry.findAllByPlateKey(List.of("123", "999"));
+
+        assertEquals(Map.of("123", registeredVehicle), result);
+        verify(vehicleRepository, times(1)).findRegisteredVehicles(Set.of("123"));
+    }
+
+    @Test
+    void givenOnlyUnknownPlates_whenFindAllByPlateKey_thenSkipQuery() {
+        assertTrue(vehicleRegistry.findAllByPlateKey(List.of("998", "999")).isEmpty());
+
+        verify(vehicleRepository, never()).findRegisteredVehicles(anyCollection());
+    }
+
+}
@@ -1,24 +1,45 @@
 package com.example.demo.services;
 
 import com.example.demo.ApplicationConfigTest;
+import com.example.demo.dtos.MonthRolloverDTO;
 import com.example.demo.dtos.VehicleDTO;
 import com.example.demo.entities.NonResidentVehicle;
 import com.example.demo.entities.OfficialVehicle;
+import com.example.demo.entities.ResidentInvoice;
 import com.example.demo.entities.ResidentVehicle;
+import com.example.demo.entities.Stay;
 import com.example.demo.entities.Vehicle;
 import com.example.demo.enums.VehicleEnum;
+import com.example.demo.exceptions.ResourceNotFoundException;
 import com.example.demo.exceptions.UniqueConstraintViolationError;
+import com.example.demo.metrics.OperationMetrics;
+import com.example.demo.projections.OfficialVehicleUsage;
+import com.example.demo.projections.ParkedVehicle;
+import com.example.demo.projections.RegisteredVehicle;
+import com.example.demo.projections.ResidentPayment;
+import com.example.demo.repositories.ResidentInvoiceBatchRepository;
+import com.example.demo.repositories.ResidentInvoiceRepository;
+import com.example.demo.repositories.StayPartitionRepository;
 import com.example.demo.repositories.StayRepository;
 import com.example.demo.repositories.VehicleRepository;
 import com.example.demo.utils.TestDataBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,12 +50,36 @@ class VehicleServiceTest extends ApplicationConfigTest {
     @Autowired
     private VehicleService vehicleService;
 
+    @Autowired
+    private ActiveStayIndex activeStayIndex;
+
+    @Autowired
+    private StayPartitionManager stayPartitionManager;
+
+    @Autowired
+    private VehicleRegistry vehicleRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
     private VehicleRepository vehicleRepository;
 
     @MockBean
     private StayRepository stayRepository;
 
+    @MockBean
+    private StayPartitionRepository stayPartitionRepository;
+
+    @MockBean
+    private ResidentInvoiceRepository residentInvoiceRepository;
+
+    @MockBean
+    private ResidentInvoiceBatchRepository residentInvoiceBatchRepository;
+
+    @MockBean
+    private Clock clock;
+
     Vehicle vehicle = TestDataBuilder.buildVehicleNoId();
     ResidentVehicle residentVehicle = (ResidentVehicle) TestDataBuilder.buildVehicleNoId(VehicleEnum.RESIDENT, "123");
     OfficialVehicle officialVehicle = (OfficialVehicle) TestDataBuilder.buildVehicleNoId(VehicleEnum.OFFICIAL, "123");
@@ -43,6 +88,16 @@ class VehicleServiceTest extends ApplicationConfigTest {
 
     @BeforeEach
     void setUp() {
+        activeStayIndex.clear();
+        vehicleRegistry.clear();
+        when(clock.millis()).thenAnswer(invocation -> System.currentTimeMillis());
+        when(vehicleRepository.updateEntryTime(any(), any())).thenReturn(1);
+        when(vehicleRepository.clearTimes(any(), any())).thenReturn(1);
+
+        residentVehicle.setId(1L);
+        officialVehicle.setId(2L);
+        nonResidentVehicle.setId(3L);
+
         vehicle.setEntryTimeCurrentTime();
         vehicle.setExitTimeCurrentTime();
 
@@ -80,104 +135,463 @@ class VehicleServiceTest extends ApplicationConfigTest {
     }
 
     @Test
-    void givenValidLicensePlate_whenCheckIn_thenSetEntryTimeAndSaveVehicle() {
-        when(vehicleRepository.findByLicensePlate(vehicle.getLicensePlate()))
-                .thenReturn(Optional.of(vehicle));
+    void givenVehicleDTOWithFacility_whenRegisterVehicle_thenRegisterVehicleAtFacility() {
+        vehicleDTO.setFacility(" north");
         when(vehicleRepository.save(any(Vehicle.class))).thenReturn(vehicle);
 
-        vehicleService.checkIn(vehicle.getLicensePlate());
+        vehicleService.registerVehicle(vehicleDTO);
+
+        verify(vehicleRepository, times(1)).save(argThat(saved -> saved.getFacility().equals("NORTH")));
+    }
+
+    @Test
+    void givenValidLicensePlate_whenCheckIn_thenSetEntryTimeAndParkVehicle() {
+        when(vehicleRepository.findRegisteredVehicle(vehicle.getLicensePlate()))
+                .thenReturn(Optional.of(registeredVehicle(vehicle)));
+
+        vehicleService.checkIn("MAIN", vehicle.getLicensePlate());
 
-        assertNotNull(vehicle.getEntryTime());
+        assertTrue(activeStayIndex.isParked(vehicle.getLicensePlate()));
 
         verify(vehicleRepository, times(1))
-                .findByLicensePlate(vehicle.getLicensePlate());
-        verify(vehicleRepository, times(1)).save(vehicle);
+                .findRegisteredVehicle(vehicle.getLicensePlate());
+        verify(vehicleRepository, times(1))
+                .updateEntryTime(eq(vehicle.getId()), any(Instant.class));
+        verify(vehicleRepository, never()).save(any(Vehicle.class));
     }
 
     @Test
-    void givenValidLicensePlate_whenCheckOutResident_thenSetExitTimeAndSaveResidentVehicle() {
-        when(vehicleRepository.findByLicensePlate(residentVehicle.getLicensePlate()))
-                .thenReturn(Optional.of(residentVehicle));
-        when(vehicleRepository.save(any(Vehicle.class))).thenReturn(residentVehicle);
+    void givenPlateReadWithSeparators_whenCheckIn_thenParkUnderPlateKey() {
+        when(vehicleRepository.findRegisteredVehicle(vehicle.getPlateKey()))
+                .thenReturn(Optional.of(registeredVehicle(vehicle)));
+
+        vehicleService.checkIn("MAIN", "1-2 3");
+        vehicleService.checkIn("MAIN", "12 3");
 
-        vehicleService.checkOutResident(residentVehicle.getLicensePlate());
+        assertTrue(activeStayIndex.isParked(vehicle.getPlateKey()));
+        verify(vehicleRepository, times(1))
+                .updateEntryTime(eq(vehicle.getId()), any(Instant.class));
+    }
 
-        assertThat(residentVehicle.getAccumulatedTime()).isNotZero();
-        assertNull(residentVehicle.getEntryTime());
-        assertNull(residentVehicle.getExitTime());
+    @Test
+    void givenParkedVehicle_whenCheckInAgain_thenKeepEntryTime() {
+        when(vehicleRepository.findRegisteredVehicle(vehicle.getLicensePlate()))
+                .thenReturn(Optional.of(registeredVehicle(vehicle)));
+
+        vehicleService.checkIn("MAIN", vehicle.getLicensePlate());
+        vehicleService.checkIn("MAIN", vehicle.getLicensePlate());
 
         verify(vehicleRepository, times(1))
-                .findByLicensePlate(residentVehicle.getLicensePlate());
-        verify(vehicleRepository, times(1)).save(residentVehicle);
+                .updateEntryTime(eq(vehicle.getId()), any(Instant.class));
+    }
+
+    @Test
+    void givenValidLicensePlate_whenCheckIn_thenRecordOperationMetrics() {
+        long timed = operationCount("checkIn", "none");
+        double counted = vehicleCount("checkIn", vehicle.getVehicleEnum());
+        when(vehicleRepository.findRegisteredVehicle(vehicle.getLicensePlate()))
+                .thenReturn(Optional.of(registeredVehicle(vehicle)));
+
+        vehicleService.checkIn("MAIN", vehicle.getLicensePlate());
+
+        assertEquals(timed + 1, operationCount("checkIn", "none"));
+        assertEquals(counted + 1, vehicleCount("checkIn", vehicle.getVehicleEnum()));
+        assertNotNull(meterRegistry.find(OperationMetrics.OPERATION_STATEMENTS)
+                .tag("operation", "checkIn").summary());
     }
 
     @Test
-    void givenValidLicensePlate_whenCheckOutOfficial_thenSetExitTimeAndSaveOfficialVehicle() {
-        when(vehicleRepository.findByLicensePlate(officialVehicle.getLicensePlate()))
-                .thenReturn(Optional.of(officialVehicle));
-        when(vehicleRepository.save(any(Vehicle.class))).thenReturn(officialVehicle);
+    void givenNonExistentLicensePlate_whenCheckIn_thenRecordOperationException() {
+        long timed = operationCount("checkIn", "ResourceNotFoundException");
+        when(vehicleRepository.findRegisteredVehicle("random")).thenReturn(Optional.empty());
 
-        vehicleService.checkOutOfficial(officialVehicle.getLicensePlate());
+        assertThrows(ResourceNotFoundException.class, () -> vehicleService.checkIn("MAIN", "random"));
 
-        assertThat(officialVehicle.getStayList().size()).isNotZero();
-        assertNull(officialVehicle.getEntryTime());
-        assertNull(officialVehicle.getExitTime());
+        assertEquals(timed + 1, operationCount("checkIn", "ResourceNotFoundException"));
+    }
 
-        verify(vehicleRepository, times(1))
-                .findByLicensePlate(officialVehicle.getLicensePlate());
-        verify(vehicleRepository, times(1)).save(officialVehicle);
+    @Test
+    void givenNonExistentLicensePlate_whenCheckIn_thenThrowWithoutStackTrace() {
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
+                () -> vehicleService.checkIn("MAIN", "random"));
+
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    void givenVehicleOfAnotherFacility_whenCheckIn_thenThrowResourceNotFoundException() {
+        when(vehicleRepository.findRegisteredVehicle(vehicle.getLicensePlate())).thenReturn(Optional.of(
+                new RegisteredVehicle(vehicle.getId(), vehicle.getPlateKey(), vehicle.getVehicleEnum(), "NORTH")));
+
+        assertThrows(ResourceNotFoundException.class, () -> vehicleService.checkIn("MAIN", vehicle.getLicensePlate()));
+
+        assertFalse(activeStayIndex.isParked(vehicle.getLicensePlate()));
+        verify(vehicleRepository, never()).updateEntryTime(any(), any());
+    }
+
+    @Test
+    void givenVehicleParkedAtAnotherFacility_whenCheckOut_thenThrowResourceNotFoundException() {
+        checkIn(residentVehicle);
+
+        assertThrows(ResourceNotFoundException.class, () ->
+                vehicleService.checkOutResident("NORTH", residentVehicle.getLicensePlate()));
+
+        assertTrue(activeStayIndex.isParked(residentVehicle.getLicensePlate()));
+        verify(vehicleRepository, never()).clearTimes(any(), any());
+    }
+
+    @Test
+    void givenVehicleAlreadyParkedInDatabase_whenCheckIn_thenKeepDatabaseEntryTime() {
+        Instant entryTime = Instant.ofEpochMilli(0);
+        when(vehicleRepository.findRegisteredVehicle(vehicle.getLicensePlate()))
+                .thenReturn(Optional.of(registeredVehicle(vehicle)));
+        when(vehicleRepository.updateEntryTime(eq(vehicle.getId()), any(Instant.class))).thenReturn(0);
+        when(vehicleRepository.findParkedVehicle(vehicle.getLicensePlate())).thenReturn(Optional.of(new ParkedVehicle
+                (vehicle.getId(), vehicle.getLicensePlate(), vehicle.getVehicleEnum(), entryTime, vehicle.getFacility())));
+
+        vehicleService.checkIn("MAIN", vehicle.getLicensePlate());
+
+        assertEquals(entryTime, activeStayIndex.find(vehicle.getLicensePlate()).orElseThrow().entryTime());
+    }
+
+    @Test
+    void givenVehicleAlreadyCheckedOutInDatabase_whenCheckOutResident_thenThrowIllegalStateException() {
+        checkIn(residentVehicle);
+        when(vehicleRepository.clearTimes(eq(residentVehicle.getId()), any(Instant.class))).thenReturn(0);
+        when(vehicleRepository.findParkedVehicle(residentVehicle.getLicensePlate())).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () ->
+                vehicleService.checkOutResident("MAIN", residentVehicle.getLicensePlate()));
+
+        assertFalse(activeStayIndex.isParked(residentVehicle.getLicensePlate()));
+        verify(residentInvoiceBatchRepository, never()).addStays(any());
+    }
+
+    @Test
+    void givenOfficialVehicleAlreadyCheckedOutInDatabase_whenCheckOutOfficial_thenDoNotSaveStay() {
+        checkIn(officialVehicle);
+        when(vehicleRepository.clearTimes(eq(officialVehicle.getId()), any(Instant.class))).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () ->
+                vehicleService.checkOutOfficial("MAIN", officialVehicle.getLicensePlate()));
+
+        verify(stayRepository, never()).save(any(Stay.class));
+    }
+
+    @Test
+    void givenValidLicensePlate_whenCheckOutResident_thenClearTimesAndAddStayToInvoice() {
+        checkIn(residentVehicle);
+
+        vehicleService.checkOutResident("MAIN", residentVehicle.getLicensePlate());
+
+        assertFalse(activeStayIndex.isParked(residentVehicle.getLicensePlate()));
+
+        verify(vehicleRepository, times(1)).clearTimes(eq(residentVehicle.getId()), any(Instant.class));
+        verify(residentInvoiceBatchRepository, times(1)).addStays(argThat(checkOuts -> checkOuts.size() == 1
+                && checkOuts.get(0).vehicleId().equals(residentVehicle.getId())));
+        verify(vehicleRepository, never()).save(any(Vehicle.class));
+    }
+
+    @Test
+    void givenCheckOutJustAfterStartOfMonth_whenCheckOutResident_thenBillStayToCurrentMonth() {
+        when(clock.millis()).thenReturn(Instant.parse("2023-06-30T23:50:00Z").toEpochMilli());
+        checkIn(residentVehicle);
+        when(clock.millis()).thenReturn(Instant.parse("2023-07-01T00:10:00Z").toEpochMilli());
+        when(residentInvoiceBatchRepository.addStays(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        double billed = lateResidentStays("billed");
+
+        vehicleService.checkOutResident("MAIN", residentVehicle.getLicensePlate());
+
+        verify(residentInvoiceBatchRepository, times(1)).addLateStays(argThat(checkOuts -> checkOuts.size() == 1
+                && checkOuts.get(0).vehicleId().equals(residentVehicle.getId())), eq(LocalDate.of(2023, 7, 1)));
+        assertEquals(billed + 1, lateResidentStays("billed"));
+    }
+
+    @Test
+    void givenValidLicensePlate_whenCheckOutOfficial_thenSaveStayAndClearTimes() {
+        checkIn(officialVehicle);
+
+        vehicleService.checkOutOfficial("MAIN", officialVehicle.getLicensePlate());
+
+        assertFalse(activeStayIndex.isParked(officialVehicle.getLicensePlate()));
+
+        verify(stayRepository, times(1)).save(any(Stay.class));
+        verify(vehicleRepository, times(1)).clearTimes(eq(officialVehicle.getId()), any(Instant.class));
+        verify(vehicleRepository, never()).save(any(Vehicle.class));
+    }
+
+    @Test
+    void givenValidLicensePlate_whenCheckOutNonResident_thenCalculateParkingFeeAndClearTimes() {
+        checkIn(nonResidentVehicle);
+
+        BigDecimal result = vehicleService.checkOutNonResident("MAIN", nonResidentVehicle.getLicensePlate());
+
+        assertNotNull(result);
+        assertFalse(activeStayIndex.isParked(nonResidentVehicle.getLicensePlate()));
+
+        verify(vehicleRepository, times(1)).clearTimes(eq(nonResidentVehicle.getId()), any(Instant.class));
+        verify(vehicleRepository, never()).save(any(Vehicle.class));
+    }
+
+    @Test
+    void givenClock_whenCheckOutNonResident_thenChargeForElapsedClockTime() {
+        when(clock.millis()).thenReturn(0L, 90_000L);
+        checkIn(nonResidentVehicle);
+
+        BigDecimal result = vehicleService.checkOutNonResident("MAIN", nonResidentVehicle.getLicensePlate());
+
+        assertEquals(new BigDecimal("0.750"), result);
+    }
+
+    @Test
+    void givenVehicleNotParked_whenCheckOut_thenThrowIllegalStateException() {
+        when(vehicleRepository.findRegisteredVehicle(nonResidentVehicle.getLicensePlate()))
+                .thenReturn(Optional.of(registeredVehicle(nonResidentVehicle)));
+
+        assertThrows(IllegalStateException.class, () ->
+                vehicleService.checkOutNonResident("MAIN", nonResidentVehicle.getLicensePlate()));
+
+        verify(vehicleRepository, never()).clearTimes(any(), any());
+    }
+
+    @Test
+    void givenNonExistentLicensePlate_whenCheckOut_thenThrowResourceNotFoundException() {
+        when(vehicleRepository.findRegisteredVehicle("random")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () ->
+                vehicleService.checkOutResident("MAIN", "random"));
     }
 
     @Test
-    void givenValidLicensePlate_whenCheckOutNonResident_thenCalculateParkingFeeAndSaveNonResidentVehicle() {
-        when(vehicleRepository.findByLicensePlate(nonResidentVehicle.getLicensePlate()))
-                .thenReturn(Optional.of(nonResidentVehicle));
-        when(vehicleRepository.save(any(Vehicle.class))).thenReturn(nonResidentVehicle);
+    void givenVehicleOfAnotherType_whenCheckOut_thenThrowIllegalStateException() {
+        checkIn(residentVehicle);
 
-        BigDecimal result = vehicleService.checkOutNonResident(nonResidentVehicle.getLicensePlate());
+        assertThrows(IllegalStateException.class, () ->
+                vehicleService.checkOutNonResident("MAIN", residentVehicle.getLicensePlate()));
 
-        System.out.println("check" + result);
-        assertNull(nonResidentVehicle.getEntryTime());
-        assertNull(nonResidentVehicle.getExitTime());
+        assertTrue(activeStayIndex.isParked(residentVehicle.getLicensePlate()));
+    }
+
+    @Test
+    void givenRegisteredVehicle_whenCheckInTwice_thenLookUpRegistryOnce() {
+        checkIn(nonResidentVehicle);
+        vehicleService.checkOutNonResident("MAIN", nonResidentVehicle.getLicensePlate());
+        vehicleService.checkIn("MAIN", nonResidentVehicle.getLicensePlate());
 
         verify(vehicleRepository, times(1))
-                .findByLicensePlate(nonResidentVehicle.getLicensePlate());
-        verify(vehicleRepository, times(1)).save(nonResidentVehicle);
+                .findRegisteredVehicle(nonResidentVehicle.getLicensePlate());
     }
 
     @Test
-    void whenStartOfMonth_thenClearStaysForOfficialVehiclesAndResetAccumulatedTimeForResidentVehicles() {
-        residentVehicle.setAccumulatedTime(1);
-        List<ResidentVehicle> residentVehicleList = Collections.singletonList(residentVehicle);
-        when(vehicleRepository.findAllResidentVehicle()).thenReturn(residentVehicleList);
+    void givenCachedVehicle_whenRegisterVehicle_thenEvictCachedLookup() {
+        checkIn(vehicle);
+        vehicleService.checkOutResident("MAIN", vehicle.getLicensePlate());
+        when(vehicleRepository.save(any(Vehicle.class))).thenReturn(vehicle);
+
+        vehicleService.registerVehicle(vehicleDTO);
+        vehicleService.checkIn("MAIN", vehicle.getLicensePlate());
+
+        verify(vehicleRepository, times(2))
+                .findRegisteredVehicle(vehicle.getLicensePlate());
+    }
+
+    private static RegisteredVehicle registeredVehicle(Vehicle vehicle) {
+        return new RegisteredVehicle(vehicle.getId(), vehicle.getPlateKey(), vehicle.getVehicleEnum(),
+                vehicle.getFacility());
+    }
+
+    private void checkIn(Vehicle vehicle) {
+        when(vehicleRepository.findRegisteredVehicle(vehicle.getLicensePlate()))
+                .thenReturn(Optional.of(registeredVehicle(vehicle)));
+        vehicleService.checkIn("MAIN", vehicle.getLicensePlate());
+    }
+
+    private long operationCount(String operation, String exception) {
+        Timer timer = meterRegistry.find(OperationMetrics.OPERATION_TIMER)
+                .tag("operation", operation).tag("exception", exception).timer();
+        return timer == null ? 0 : timer.count();
+    }
 
-        vehicleService.startOfMonth();
+    private double lateResidentStays(String outcome) {
+        Counter counter = meterRegistry.find(OperationMetrics.LATE_RESIDENT_STAYS).tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private double vehicleCount(String operation, VehicleEnum vehicleEnum) {
+        Counter counter = meterRegistry.find(OperationMetrics.OPERATION_VEHICLES)
+                .tag("operation", operation).tag("vehicleEnum", vehicleEnum.name()).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    void whenStartOfMonth_thenRotateStayPartitionsAndCloseResidentInvoicesOfPreviousMonths() {
+        when(clock.millis()).thenReturn(Instant.parse("2023-07-01T00:10:00Z").toEpochMilli());
+        when(stayPartitionRepository.isPartitioned()).thenReturn(true);
+        when(stayPartitionRepository.findPartitions()).thenReturn(List.of
+                ("stay_default", "stay_y2023m05", "stay_y2023m06", "stay_y2023m07"));
+        ResidentInvoice june = invoice(LocalDate.of(2023, 6, 1), 90500L);
+        ResidentInvoice may = invoice(LocalDate.of(2023, 5, 1), 60000L);
+        when(residentInvoiceRepository.findByFacilityAndClosedFalseAndBillingMonthBefore("MAIN", LocalDate.of(2023, 7, 1)))
+                .thenReturn(List.of(june, may));
+
+        MonthRolloverDTO result = vehicleService.startOfMonth("MAIN");
+
+        assertEquals(List.of("stay_y2023m08"), result.getStayPartitionsCreated());
+        assertEquals(List.of("stay_y2023m05"), result.getStayPartitionsClosed());
+        assertEquals(2, result.getResidentInvoicesClosed());
+        assertTrue(june.isClosed());
+        assertEquals(ResidentVehicle.calculateParkingFee(90500L), june.getFee());
+        assertTrue(may.isClosed());
+
+        verify(stayPartitionRepository, times(1)).createPartition("stay_y2023m08",
+                Instant.parse("2023-08-01T00:00:00Z").toEpochMilli(),
+                Instant.parse("2023-09-01T00:00:00Z").toEpochMilli());
+        verify(stayPartitionRepository, times(1)).closePartition("stay_y2023m05");
+        verify(stayPartitionRepository, never()).closePartition("stay_y2023m06");
+        verify(stayRepository, never()).deleteAll();
+        verify(residentInvoiceRepository, times(1)).saveAll(List.of(june, may));
+        verify(vehicleRepository, never()).findAllResidentVehicle();
+    }
 
-        assertEquals(0, residentVehicle.getAccumulatedTime());
+    @Test
+    void givenStaysOfNextMonthInDefaultPartition_whenStartOfMonth_thenMoveThemIntoNewPartition() {
+        long august = Instant.parse("2023-08-01T00:00:00Z").toEpochMilli();
+        long september = Instant.parse("2023-09-01T00:00:00Z").toEpochMilli();
+        when(clock.millis()).thenReturn(Instant.parse("2023-07-01T00:10:00Z").toEpochMilli());
+        when(stayPartitionRepository.isPartitioned()).thenReturn(true);
+        when(stayPartitionRepository.findPartitions()).thenReturn(List.of("stay_default", "stay_y2023m07"));
+        when(stayPartitionRepository.hasDefaultRows(august, september)).thenReturn(true);
+        when(stayPartitionRepository.createPartitionFromDefault("stay_y2023m08", august, september)).thenReturn(3);
+
+        MonthRolloverDTO result = vehicleService.startOfMonth("MAIN");
+
+        assertEquals(List.of("stay_y2023m08"), result.getStayPartitionsCreated());
+        verify(stayPartitionRepository, never()).createPartition(eq("stay_y2023m08"), anyLong(), anyLong());
+    }
 
-        verify(stayRepository, times(1)).deleteAll();
-        verify(vehicleRepository,times(1)).findAllResidentVehicle();
-        verify(vehicleRepository,times(1)).save(residentVehicle);
+    @Test
+    void givenDefaultPartitionRejectingNewPartition_whenEnsurePartitions_thenLogAndKeepStarting() {
+        long july = Instant.parse("2023-07-01T00:00:00Z").toEpochMilli();
+        long august = Instant.parse("2023-08-01T00:00:00Z").toEpochMilli();
+        when(clock.millis()).thenReturn(Instant.parse("2023-07-01T00:10:00Z").toEpochMilli());
+        when(stayPartitionRepository.isPartitioned()).thenReturn(true);
+        when(stayPartitionRepository.findPartitions()).thenReturn(List.of("stay_default"));
+        doThrow(new DataIntegrityViolationException("updated partition constraint for default partition would be violated"))
+                .when(stayPartitionRepository).createPartition("stay_y2023m07", july, august);
+
+        stayPartitionManager.ensurePartitions();
+
+        verify(stayPartitionRepository, times(1)).createPartition(eq("stay_y2023m08"), anyLong(), anyLong());
+        assertEquals(List.of("stay_y2023m08"), stayPartitionManager.rotate().created());
     }
 
     @Test
-    void givenVehicles_whenResidentPayment_thenRetrieveResidentVehiclesCalculateValuesAndReturnList() {
-        residentVehicle.setAccumulatedTime(1);
-        List<ResidentVehicle> residentVehicleList = Collections.singletonList(residentVehicle);
-        when(vehicleRepository.findAllResidentVehicle()).thenReturn(residentVehicleList);
+    void givenUnpartitionedStays_whenStartOfMonth_thenKeepStays() {
+        when(stayPartitionRepository.isPartitioned()).thenReturn(false);
 
-        List<HashMap<String, Object>> expectedResult = new ArrayList<>();
-        HashMap<String, Object> hashMap = new HashMap<>();
-        hashMap.put("licensePlate", residentVehicle.getLicensePlate());
-        hashMap.put("parkingTime", Vehicle.millisecondsToMinutes(residentVehicle.getAccumulatedTime()));
-        hashMap.put("value", residentVehicle.calculateParkingFee());
-        expectedResult.add(hashMap);
+        MonthRolloverDTO result = vehicleService.startOfMonth("MAIN");
 
-        List<HashMap<String, Object>>  result = vehicleService.residentPayment();
+        assertEquals(Collections.emptyList(), result.getStayPartitionsCreated());
+        assertEquals(Collections.emptyList(), result.getStayPartitionsClosed());
+
+        verify(stayPartitionRepository, never()).createPartition(anyString(), anyLong(), anyLong());
+        verify(stayRepository, never()).deleteAll();
+        verify(residentInvoiceRepository, times(1)).findByFacilityAndClosedFalseAndBillingMonthBefore(eq("MAIN"), any(LocalDate.class));
+    }
+
+    @Test
+    void givenPeriod_whenOfficialVehicleUsage_thenReturnAggregatedUsage() {
+        Instant from = Instant.ofEpochMilli(0);
+        Instant to = Instant.ofEpochMilli(600000);
+        List<OfficialVehicleUsage> expectedResult = Collections.singletonList(new OfficialVehicleUsage
+                (officialVehicle.getLicensePlate(), 2L, new BigDecimal("4.00"), from, from));
+        when(stayRepository.findOfficialVehicleUsage("MAIN", from, to)).thenReturn(expectedResult);
+
+        List<OfficialVehicleUsage> result = vehicleService.officialVehicleUsage("MAIN", from, to);
+
+        assertEquals(expectedResult, result);
+
+        verify(stayRepository, times(1)).findOfficialVehicleUsage("MAIN", from, to);
+        verify(stayRepository, never()).findAll();
+    }
+
+    @Test
+    void givenNoMonth_whenResidentPayment_thenReturnInvoicesOfCurrentMonth() {
+        when(clock.millis()).thenReturn(Instant.parse("2023-07-15T10:00:00Z").toEpochMilli());
+        List<ResidentPayment> expectedResult = Collections.singletonList
+                (new ResidentPayment(residentVehicle.getLicensePlate(), 60000L));
+        when(residentInvoiceRepository.findPayments("MAIN", LocalDate.of(2023, 7, 1))).thenReturn(expectedResult);
+
+        List<ResidentPayment> result = vehicleService.residentPayment(null, null);
+
+        assertEquals(expectedResult, result);
+
+        verify(residentInvoiceRepository, times(1)).findPayments("MAIN", LocalDate.of(2023, 7, 1));
+        verify(vehicleRepository, never()).findAllResidentVehicle();
+    }
+
+    @Test
+    void givenPastMonth_whenResidentPayment_thenReturnInvoicesOfThatMonth() {
+        List<ResidentPayment> expectedResult = Collections.singletonList
+                (new ResidentPayment(residentVehicle.getLicensePlate(), 60000L, new BigDecimal("0.5000")));
+        when(residentInvoiceRepository.findPayments("MAIN", LocalDate.of(2023, 5, 1))).thenReturn(expectedResult);
+
+        List<ResidentPayment> result = vehicleService.residentPayment("MAIN", YearMonth.of(2023, 5));
 
         assertEquals(expectedResult, result);
+    }
+
+    @Test
+    void givenCursorAndSize_whenResidentPayment_thenReturnPageAfterCursor() {
+        List<ResidentPayment> expectedResult = Collections.singletonList
+                (new ResidentPayment("456", 60000L));
+        when(residentInvoiceRepository.findPaymentsAfter("MAIN", LocalDate.of(2023, 6, 1), "123", PageRequest.of(0, 10)))
+                .thenReturn(expectedResult);
+
+        List<ResidentPayment> result = vehicleService.residentPayment("MAIN", YearMonth.of(2023, 6), "123", 10);
+
+        assertEquals(expectedResult, result);
+
+        verify(residentInvoiceRepository, times(1))
+                .findPaymentsAfter("MAIN", LocalDate.of(2023, 6, 1), "123", PageRequest.of(0, 10));
+    }
+
+    @Test
+    void givenStreamedResidentPayments_whenStreamResidentPayment_thenConsumeEveryRow() {
+        ResidentPayment residentPayment = new ResidentPayment(residentVehicle.getLicensePlate(), 60000L);
+        when(residentInvoiceRepository.streamPayments("MAIN", LocalDate.of(2023, 6, 1)))
+                .thenReturn(Stream.of(residentPayment));
+
+        List<ResidentPayment> result = new ArrayList<>();
+        vehicleService.streamResidentPayment("MAIN", YearMonth.of(2023, 6), result::add);
+
+        assertEquals(Collections.singletonList(residentPayment), result);
+    }
+
+    @Test
+    void givenAccumulatedTime_whenBuildResidentPayment_thenMatchResidentFee() {
+        ResidentPayment result = new ResidentPayment(residentVehicle.getLicensePlate(), 90500L);
+
+        assertEquals(Vehicle.millisecondsToMinutes(90500L), result.parkingTime());
+        assertEquals(ResidentVehicle.calculateParkingFee(90500L), result.value());
+    }
+
+    @Test
+    void givenClosedInvoiceFee_whenBuildResidentPayment_thenReturnFrozenFee() {
+        ResidentPayment result = new ResidentPayment(residentVehicle.getLicensePlate(), 90500L,
+                new BigDecimal("1.0000"));
+
+        assertEquals(new BigDecimal("1.0000"), result.value());
+    }
 
-        verify(vehicleRepository,times(1)).findAllResidentVehicle();
+    private ResidentInvoice invoice(LocalDate billingMonth, long accumulatedTime) {
+        return ResidentInvoice.builder()
+                .residentVehicleId(residentVehicle.getId())
+                .billingMonth(billingMonth)
+                .facility("MAIN")
+                .licensePlate(residentVehicle.getLicensePlate())
+                .accumulatedTime(accumulatedTime)
+                .build();
     }
 
 
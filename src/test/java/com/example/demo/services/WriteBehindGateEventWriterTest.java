@@ -0,0 +1,90 @@
+package com.example.demo.services;
+
+import com.example.demo.ApplicationConfigTest;
+import com.example.demo.enums.VehicleEnum;
+import com.example.demo.events.GateEvent;
+import com.example.demo.projections.ParkedVehicle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@TestPropertySource(properties = {"vehicle.gate.write-behind.enabled=true", "vehicle.gate.write-behind.max-retries=1"})
+class WriteBehindGateEventWriterTest extends ApplicationConfigTest {
+
+    @TempDir
+    static Path logDirectory;
+
+    @DynamicPropertySource
+    static void logDirectory(DynamicPropertyRegistry registry) {
+        registry.add("vehicle.gate.write-behind.log-directory", logDirectory::toString);
+    }
+
+    @Autowired
+    private GateEventWriter gateEventWriter;
+
+    @MockBean
+    private GateEventStore gateEventStore;
+
+    @Test
+    void givenEventThatAlwaysFails_whenWrite_thenSkipItAndWriteTheOthers() {
+        List<List<String>> applied = new CopyOnWriteArrayList<>();
+        when(gateEventStore.apply(anyList())).thenAnswer(invocation -> {
+            List<GateEvent> events = invocation.getArgument(0);
+            applied.add(events.stream().map(GateEvent::licensePlate).toList());
+            if (events.stream().anyMatch(event -> event.licensePlate().equals("999"))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return List.of();
+        });
+
+        gateEventWriter.write(List.of(checkIn(1L, "123"), checkIn(2L, "999"), checkIn(3L, "456")));
+        gateEventWriter.flush();
+        gateEventWriter.write(List.of(checkIn(4L, "789")));
+        gateEventWriter.flush();
+
+        List<List<String>> failed = applied.stream().filter(plates -> plates.contains("999")).toList();
+        assertEquals(List.of("999"), failed.get(failed.size() - 1));
+        assertEquals(List.of("123", "456", "789"), applied.stream()
+                .filter(plates -> !plates.contains("999"))
+                .flatMap(List::stream)
+                .toList());
+    }
+
+    @Test
+    void givenDatabaseBehind_whenFlushWithTimeout_thenReturnFalseUntilCaughtUp() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(gateEventStore.apply(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+
+        gateEventWriter.write(List.of(checkIn(5L, "555")));
+
+        assertFalse(gateEventWriter.flush(100));
+        release.countDown();
+        assertTrue(gateEventWriter.flush(5_000));
+    }
+
+    private static GateEvent checkIn(long vehicleId, String licensePlate) {
+        return GateEvent.checkIn(new ParkedVehicle(vehicleId, licensePlate, VehicleEnum.RESIDENT,
+                Instant.ofEpochMilli(1_000), "MAIN"));
+    }
+
+}